@@ -0,0 +1,110 @@
+package com.example.springboot.benchmark;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.example.springboot.persistence.codec.CommentCodecs;
+import com.example.springboot.persistence.codec.CommentResponseCodec;
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.web.response.CommentResponse;
+
+// 1 ドキュメントあたりの変換コスト。converter は MongoTemplate と同じく Document を経由する
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommentCodecBenchmark {
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final Codec<Document> documentCodec = CommentCodecs.REGISTRY.get(Document.class);
+    private final CommentResponseCodec commentResponseCodec = new CommentResponseCodec();
+
+    private MappingMongoConverter converter;
+    private Comment comment;
+    private byte[] bson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        LocalDateTime now = LocalDateTime.parse("2023-08-01T00:00:00.123");
+        comment = Comment.builder()
+                .id(new ObjectId().toHexString())
+                .role("user")
+                .content("こんにちは。今日はいい天気ですね。")
+                .createdAt(now)
+                .updatedAt(now.plusMinutes(5))
+                .version(3L)
+                .build();
+        bson = encodeWithConverter();
+    }
+
+    @Benchmark
+    public byte[] encodeWithConverter() {
+        Document document = new Document();
+        converter.write(comment, document);
+        BasicOutputBuffer buffer = new BasicOutputBuffer(256);
+        documentCodec.encode(new BsonBinaryWriter(buffer), document, ENCODER_CONTEXT);
+        return buffer.toByteArray();
+    }
+
+    // 変更前の読み取り経路。Document → Comment → CommentResponse と 3 回組み立てる
+    @Benchmark
+    public CommentResponse decodeWithConverter() {
+        Document document = documentCodec.decode(reader(), DECODER_CONTEXT);
+        Comment decoded = converter.read(Comment.class, document);
+        return CommentResponse.builder()
+                .id(decoded.getId())
+                .role(decoded.getRole())
+                .content(decoded.getContent())
+                .createdAt(decoded.getCreatedAt())
+                .updatedAt(decoded.getUpdatedAt())
+                .version(decoded.getVersion())
+                .build();
+    }
+
+    @Benchmark
+    public CommentResponse decodeResponseWithCodec() {
+        return commentResponseCodec.decode(reader(), DECODER_CONTEXT);
+    }
+
+    private BsonBinaryReader reader() {
+        return new BsonBinaryReader(ByteBuffer.wrap(bson));
+    }
+}
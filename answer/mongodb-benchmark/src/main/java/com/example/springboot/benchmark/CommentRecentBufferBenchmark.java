@@ -0,0 +1,135 @@
+package com.example.springboot.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.service.CommentRecentBuffer;
+import com.example.springboot.web.response.CommentResponse;
+
+// GET /api/comment/recent の読み取り経路。読み取り 3 スレッドと書き込み 1 スレッドを同時に動かし、
+// 1 つのロックで守った ArrayDeque と比べる
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommentRecentBufferBenchmark {
+
+    private static final int CAPACITY = 1000;
+
+    @Param({ "20", "100" })
+    private int limit;
+
+    private CommentRecentBuffer buffer;
+    private LockedBuffer lockedBuffer;
+    private Comment[] comments;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buffer = new CommentRecentBuffer(CAPACITY);
+        lockedBuffer = new LockedBuffer(CAPACITY);
+        comments = new Comment[CAPACITY * 2];
+        for (int i = 0; i < comments.length; i++) {
+            comments[i] = Comment.builder()
+                    .id("%024d".formatted(i))
+                    .role("user")
+                    .content("こんにちは。今日はいい天気ですね。")
+                    .version(0L)
+                    .build();
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            buffer.add(comments[i]);
+            lockedBuffer.add(comments[i]);
+        }
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(3)
+    public List<CommentResponse> ringBufferRead() {
+        return buffer.recent(limit);
+    }
+
+    @Benchmark
+    @Group("ringBuffer")
+    @GroupThreads(1)
+    public void ringBufferWrite() {
+        buffer.add(nextComment());
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public List<CommentResponse> lockedRead() {
+        return lockedBuffer.recent(limit);
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedWrite() {
+        lockedBuffer.add(nextComment());
+    }
+
+    // 書き込みは各グループで 1 スレッドだけが呼ぶ
+    private Comment nextComment() {
+        Comment comment = comments[next];
+        next = (next + 1) % comments.length;
+        return comment;
+    }
+
+    private static class LockedBuffer {
+
+        private final int capacity;
+        private final ArrayDeque<CommentResponse> deque;
+
+        LockedBuffer(int capacity) {
+            this.capacity = capacity;
+            deque = new ArrayDeque<>(capacity);
+        }
+
+        synchronized void add(Comment comment) {
+            if (deque.size() == capacity) {
+                deque.removeLast();
+            }
+            deque.addFirst(CommentResponse.builder()
+                    .id(comment.getId())
+                    .role(comment.getRole())
+                    .content(comment.getContent())
+                    .createdAt(comment.getCreatedAt())
+                    .updatedAt(comment.getUpdatedAt())
+                    .version(comment.getVersion())
+                    .build());
+        }
+
+        synchronized List<CommentResponse> recent(int limit) {
+            List<CommentResponse> comments = new ArrayList<>(limit);
+            Iterator<CommentResponse> iterator = deque.iterator();
+            while (iterator.hasNext() && comments.size() < limit) {
+                comments.add(iterator.next());
+            }
+            return comments;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.springboot.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.springboot.listener.MongoCommandMetricsListener;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// コマンドを 1 件送るたびに MongoCommandMetricsListener が足すコスト。
+// コメント 1 件の insert を、バイト列を持つ RawBsonDocument とそうでない BsonDocument で比べ、
+// 比較用に毎回エンコードし直してサイズを数えた場合も計測する
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MongoCommandMetricsListenerBenchmark {
+
+    private static final ConnectionDescription CONNECTION = new ConnectionDescription(
+            new ServerId(new ClusterId(), new ServerAddress()));
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    private MongoCommandMetricsListener listener;
+    private CommandStartedEvent raw;
+    private CommandStartedEvent document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        listener = new MongoCommandMetricsListener(new SimpleMeterRegistry());
+        BsonDocument comment = new BsonDocument("_id", new BsonObjectId(new ObjectId()))
+                .append("role", new BsonString("user"))
+                .append("content", new BsonString("こんにちは。今日はいい天気ですね。"))
+                .append("createdAt", new BsonDateTime(System.currentTimeMillis()))
+                .append("updatedAt", new BsonDateTime(System.currentTimeMillis()))
+                .append("version", new BsonInt64(0));
+        BsonDocument command = new BsonDocument("insert", new BsonString("comment"))
+                .append("ordered", BsonBoolean.TRUE)
+                .append("documents", new BsonArray(List.of(comment)))
+                .append("$db", new BsonString("sample"));
+        raw = new CommandStartedEvent(1, CONNECTION, "sample", "insert",
+                new RawBsonDocument(command, new BsonDocumentCodec()));
+        document = new CommandStartedEvent(1, CONNECTION, "sample", "insert", command);
+    }
+
+    @Benchmark
+    public void rawBsonDocument() {
+        listener.commandStarted(raw);
+    }
+
+    @Benchmark
+    public void sampledBsonDocument() {
+        listener.commandStarted(document);
+    }
+
+    @Benchmark
+    public int encodeEveryTime() {
+        try (BasicOutputBuffer buffer = new BasicOutputBuffer(); BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            CODEC.encode(writer, document.getCommand(), EncoderContext.builder().build());
+            return buffer.getPosition();
+        }
+    }
+}
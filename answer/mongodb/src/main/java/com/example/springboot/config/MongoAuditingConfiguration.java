@@ -3,8 +3,10 @@ package com.example.springboot.config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
 
 @Configuration
 @EnableMongoAuditing
+@EnableReactiveMongoAuditing
 public class MongoAuditingConfiguration {
 }
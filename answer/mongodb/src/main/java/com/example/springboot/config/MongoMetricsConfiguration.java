@@ -0,0 +1,20 @@
+package com.example.springboot.config;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.springboot.listener.MongoCommandMetricsListener;
+import com.example.springboot.listener.MongoConnectionPoolMetricsListener;
+
+// MongoTemplate と ReactiveMongoTemplate の両方のクライアントに適用される
+@Configuration
+public class MongoMetricsConfiguration {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoMetricsCustomizer(MongoCommandMetricsListener commandListener,
+            MongoConnectionPoolMetricsListener connectionPoolListener) {
+        return builder -> builder.addCommandListener(commandListener)
+                .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(connectionPoolListener));
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.springboot.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// comment から comment_archive への移動に使う。change stream と同じくレプリカセットが必要。
+// トランザクションマネージャーを Bean にすると @Transactional 全体に使われるため、アーカイブ用の TransactionTemplate の中だけで持つ
+@Configuration
+public class MongoTransactionConfiguration {
+
+    public static final String COMMENT_ARCHIVE = "commentArchiveTransactionTemplate";
+
+    @Bean(COMMENT_ARCHIVE)
+    public TransactionTemplate commentArchiveTransactionTemplate(MongoDatabaseFactory mongoDatabaseFactory) {
+        return new TransactionTemplate(new MongoTransactionManager(mongoDatabaseFactory));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.springboot.listener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// コマンドごとの実行時間は Spring Boot が登録する mongodb.driver.commands が記録するため、ここではサイズだけを扱う
+@Component
+public class MongoCommandMetricsListener implements CommandListener {
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    // RawBsonDocument 以外はエンコードし直すコストがかかるため、コマンドごとに 1/SAMPLE_INTERVAL だけ数える
+    static final int SAMPLE_INTERVAL = 16;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Sizes> requests = new ConcurrentHashMap<>();
+    private final Map<String, Sizes> responses = new ConcurrentHashMap<>();
+
+    public MongoCommandMetricsListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        requests.computeIfAbsent(event.getCommandName(), command -> register("mongodb.driver.commands.request.size",
+                "Size of commands sent to MongoDB", command))
+                .record(event.getCommand());
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        responses.computeIfAbsent(event.getCommandName(), command -> register("mongodb.driver.commands.response.size",
+                "Size of replies received from MongoDB", command))
+                .record(event.getResponse());
+    }
+
+    private Sizes register(String name, String description, String command) {
+        return new Sizes(DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag("command", command)
+                .register(meterRegistry));
+    }
+
+    // RawBsonDocument 以外は送受信したバイト列を持たないため、エンコードし直して数える
+    static int sizeOf(BsonDocument document) {
+        if (document == null) {
+            return 0;
+        }
+        if (document instanceof RawBsonDocument raw) {
+            return raw.getByteBuffer().remaining();
+        }
+        try (BasicOutputBuffer buffer = new BasicOutputBuffer(); BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            CODEC.encode(writer, document, EncoderContext.builder().build());
+            return buffer.getPosition();
+        }
+    }
+
+    private record Sizes(DistributionSummary summary, AtomicLong events) {
+
+        Sizes(DistributionSummary summary) {
+            this(summary, new AtomicLong());
+        }
+
+        void record(BsonDocument document) {
+            if (document == null) {
+                return;
+            }
+            if (document instanceof RawBsonDocument || events.getAndIncrement() % SAMPLE_INTERVAL == 0) {
+                summary.record(sizeOf(document));
+            }
+        }
+    }
+}
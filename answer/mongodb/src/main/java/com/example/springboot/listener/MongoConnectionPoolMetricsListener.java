@@ -0,0 +1,123 @@
+package com.example.springboot.listener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.stereotype.Component;
+
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+// 接続数やプールサイズは Spring Boot が登録する mongodb.driver.pool.* が記録するため、ここでは待ち時間と使用率を扱う
+@Component
+public class MongoConnectionPoolMetricsListener implements ConnectionPoolListener {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<ServerId, Pool> pools = new ConcurrentHashMap<>();
+
+    public MongoConnectionPoolMetricsListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void connectionPoolCreated(ConnectionPoolCreatedEvent event) {
+        pools.computeIfAbsent(event.getServerId(), serverId -> register(serverId, event.getSettings().getMaxSize()));
+    }
+
+    @Override
+    public void connectionPoolClosed(ConnectionPoolClosedEvent event) {
+        Pool pool = pools.remove(event.getServerId());
+        if (pool != null) {
+            pool.meters().forEach(meterRegistry::remove);
+        }
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        Pool pool = pools.get(event.getServerId());
+        if (pool != null) {
+            pool.started().add(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        Pool pool = pools.get(event.getConnectionId().getServerId());
+        if (pool != null) {
+            pool.checkedOut().incrementAndGet();
+            record(pool, pool.succeeded());
+        }
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        Pool pool = pools.get(event.getServerId());
+        if (pool != null) {
+            record(pool, pool.failed());
+        }
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        Pool pool = pools.get(event.getConnectionId().getServerId());
+        if (pool != null) {
+            pool.checkedOut().decrementAndGet();
+        }
+    }
+
+    // 4.9 のドライバのイベントは貸出の開始と完了を結び付ける ID を持たないため、開始の古い順に対応させる。
+    // 個々の待ち時間は前後しうるが、合計と件数は正しい
+    private static void record(Pool pool, Timer timer) {
+        Long started = pool.started().poll();
+        if (started != null) {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Pool register(ServerId serverId, int maxSize) {
+        Tags tags = Tags.of("cluster.id", serverId.getClusterId().getValue(),
+                "server.address", serverId.getAddress().toString());
+        AtomicInteger checkedOut = new AtomicInteger();
+        return new Pool(new ConcurrentLinkedQueue<>(), checkedOut,
+                checkout(tags, "SUCCESS"),
+                checkout(tags, "FAILED"),
+                Gauge.builder("mongodb.driver.pool.saturation", checkedOut,
+                        count -> maxSize == 0 ? 0 : (double) count.get() / maxSize)
+                        .description("Ratio of checked out connections to the maximum pool size")
+                        .tags(tags)
+                        .register(meterRegistry));
+    }
+
+    private Timer checkout(Tags tags, String status) {
+        return Timer.builder("mongodb.driver.pool.checkout")
+                .description("Time spent waiting to check out a connection from the pool")
+                .tags(tags)
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+
+    private record Pool(Queue<Long> started, AtomicInteger checkedOut, Timer succeeded, Timer failed,
+            Gauge saturation) {
+
+        List<Meter> meters() {
+            return List.of(succeeded, failed, saturation);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.springboot.persistence.codec;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+
+// MappingMongoConverter と同じレイアウトで読み書きする。日時はシステムのタイムゾーンで Date に変換する
+abstract class AbstractCommentCodec<T> implements Codec<T> {
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        String id = null;
+        String role = null;
+        String content = null;
+        LocalDateTime createdAt = null;
+        LocalDateTime updatedAt = null;
+        Long version = null;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id" -> id = reader.getCurrentBsonType() == BsonType.OBJECT_ID
+                        ? reader.readObjectId().toHexString()
+                        : reader.readString();
+                case "role" -> role = reader.readString();
+                case "content" -> content = reader.readString();
+                case "createdAt" -> createdAt = readDateTime(reader);
+                case "updatedAt" -> updatedAt = readDateTime(reader);
+                case "version" -> version = reader.getCurrentBsonType() == BsonType.INT32
+                        ? (long) reader.readInt32()
+                        : reader.readInt64();
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return create(id, role, content, createdAt, updatedAt, version);
+    }
+
+    protected abstract T create(String id, String role, String content, LocalDateTime createdAt,
+            LocalDateTime updatedAt, Long version);
+
+    // null のフィールドは MappingMongoConverter と同じく書き込まない
+    protected void write(BsonWriter writer, String id, String role, String content, LocalDateTime createdAt,
+            LocalDateTime updatedAt, Long version) {
+        if (id != null) {
+            writer.writeName("_id");
+            if (CommentCodecs.id(id) instanceof ObjectId objectId) {
+                writer.writeObjectId(objectId);
+            } else {
+                writer.writeString(id);
+            }
+        }
+        if (role != null) {
+            writer.writeString("role", role);
+        }
+        if (content != null) {
+            writer.writeString("content", content);
+        }
+        if (createdAt != null) {
+            writer.writeDateTime("createdAt", toEpochMilli(createdAt));
+        }
+        if (updatedAt != null) {
+            writer.writeDateTime("updatedAt", toEpochMilli(updatedAt));
+        }
+        if (version != null) {
+            writer.writeInt64("version", version);
+        }
+    }
+
+    private static LocalDateTime readDateTime(BsonReader reader) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(reader.readDateTime()), ZoneId.systemDefault());
+    }
+
+    private static long toEpochMilli(LocalDateTime localDateTime) {
+        return localDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.springboot.persistence.codec;
+
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+
+import com.mongodb.MongoClientSettings;
+
+public final class CommentCodecs {
+
+    public static final CodecRegistry REGISTRY = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(new CommentResponseCodec()),
+            MongoClientSettings.getDefaultCodecRegistry());
+
+    private CommentCodecs() {
+    }
+
+    // MappingMongoConverter と同じく、ObjectId として解釈できる ID は ObjectId で保存されている
+    public static Object id(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
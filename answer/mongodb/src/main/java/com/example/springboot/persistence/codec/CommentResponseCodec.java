@@ -0,0 +1,31 @@
+package com.example.springboot.persistence.codec;
+
+import java.time.LocalDateTime;
+
+import org.bson.BsonWriter;
+import org.bson.codecs.EncoderContext;
+
+import com.example.springboot.web.response.CommentResponse;
+
+// comment コレクションのドキュメントを Comment を経由せずに CommentResponse として読む
+public class CommentResponseCodec extends AbstractCommentCodec<CommentResponse> {
+
+    @Override
+    public void encode(BsonWriter writer, CommentResponse comment, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        write(writer, comment.getId(), comment.getRole(), comment.getContent(), comment.getCreatedAt(),
+                comment.getUpdatedAt(), comment.getVersion());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<CommentResponse> getEncoderClass() {
+        return CommentResponse.class;
+    }
+
+    @Override
+    protected CommentResponse create(String id, String role, String content, LocalDateTime createdAt,
+            LocalDateTime updatedAt, Long version) {
+        return new CommentResponse(id, role, content, createdAt, updatedAt, version);
+    }
+}
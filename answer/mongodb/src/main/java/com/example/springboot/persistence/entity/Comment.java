@@ -6,6 +6,9 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import lombok.AllArgsConstructor;
@@ -13,7 +16,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-@Document
+// テキストインデックスは空白と記号で単語を区切る。日本語の形態素解析はしないため、語幹処理も無効にする
+@Document(language = "none")
+@CompoundIndex(name = "role_createdAt", def = "{'role': 1, 'createdAt': 1}")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -23,7 +28,10 @@ public class Comment {
     @Id
     private String id;
     private String role;
+    @TextIndexed
     private String content;
+    // comment_archive へ移す古いコメントを古い順に探す
+    @Indexed
     @CreatedDate
     private LocalDateTime createdAt;
     @LastModifiedDate
@@ -0,0 +1,50 @@
+package com.example.springboot.persistence.entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// role ごと、bucket の時刻から granularity の間に作成されたコメントの件数
+@Document("comment_rollup")
+@CompoundIndex(name = "role_granularity_bucket", def = "{'role': 1, 'granularity': 1, 'bucket': 1}")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CommentRollup {
+
+    @Id
+    private String id;
+    private String role;
+    private Granularity granularity;
+    private LocalDateTime bucket;
+    private long count;
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES, "minute"), HOUR(ChronoUnit.HOURS, "hour");
+
+        private final ChronoUnit unit;
+        private final String dateTruncUnit;
+
+        Granularity(ChronoUnit unit, String dateTruncUnit) {
+            this.unit = unit;
+            this.dateTruncUnit = dateTruncUnit;
+        }
+
+        public LocalDateTime truncate(LocalDateTime dateTime) {
+            return dateTime.truncatedTo(unit);
+        }
+
+        public String dateTruncUnit() {
+            return dateTruncUnit;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.springboot.persistence.entity;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.TextScore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// comment コレクションの検索結果。一覧に必要な項目と関連度だけを読み込む
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CommentSearchHit {
+
+    @Id
+    private String id;
+    private String role;
+    private String content;
+    private LocalDateTime createdAt;
+    @TextScore
+    private Float score;
+}
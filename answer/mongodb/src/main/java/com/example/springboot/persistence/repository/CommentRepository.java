@@ -1,5 +1,10 @@
 package com.example.springboot.persistence.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
 import org.springframework.stereotype.Repository;
 
 import com.example.springboot.persistence.entity.Comment;
@@ -9,4 +14,5 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 @Repository
 public interface CommentRepository extends MongoRepository<Comment, String> {
 
+    List<Comment> findByRoleAndCreatedAtBetween(String role, Range<LocalDateTime> createdAt, Pageable pageable);
 }
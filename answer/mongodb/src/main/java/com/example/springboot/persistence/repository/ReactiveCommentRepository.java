@@ -0,0 +1,18 @@
+package com.example.springboot.persistence.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.springboot.persistence.entity.Comment;
+
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface ReactiveCommentRepository extends ReactiveMongoRepository<Comment, String> {
+
+    Flux<Comment> findByRoleAndCreatedAtBetween(String role, Range<LocalDateTime> createdAt, Pageable pageable);
+}
@@ -0,0 +1,134 @@
+package com.example.springboot.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.springboot.config.MongoTransactionConfiguration;
+import com.example.springboot.persistence.entity.Comment;
+import com.mongodb.MongoCommandException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// 作成から comment.archive.age を過ぎたコメントを comment_archive へ移し、comment の作業セットを小さく保つ。
+// ロールアップは作成済みの件数を数えるため、移しても減算しない
+@Service
+public class CommentArchiveService {
+
+    private static final int NAMESPACE_EXISTS = 48;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Logger logger = LoggerFactory.getLogger(CommentArchiveService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier(MongoTransactionConfiguration.COMMENT_ARCHIVE)
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${comment.archive.age:365d}")
+    private Duration age = Duration.ofDays(365);
+
+    @Value("${comment.archive.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${comment.archive.compressor:zstd}")
+    private String compressor = "zstd";
+
+    @Scheduled(cron = "${comment.archive.cron:-}")
+    public void archive() {
+        archive(LocalDateTime.now().minus(age));
+    }
+
+    // 1 バッチごとにアーカイブへ upsert してから comment から削除する。途中で止まっても再実行で続きから移せる
+    public long archive(LocalDateTime cutoff) {
+        createCollection();
+        String collectionName = mongoTemplate.getCollectionName(Comment.class);
+        long start = System.nanoTime();
+        long moved = 0;
+        while (true) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Integer removed = moveBatch(cutoff, collectionName);
+            if (removed == null) {
+                break;
+            }
+            sample.stop(meterRegistry.timer("comment.archive.batch"));
+            meterRegistry.counter("comment.archive.moved").increment(removed);
+            moved += removed;
+            // 1 件も削除できなかった場合は同じバッチを繰り返さず、次回の実行に回す
+            if (removed == 0) {
+                break;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("コメントを {} 件アーカイブしました ({} 秒, {} 件/秒)", moved, "%.3f".formatted(seconds),
+                "%.0f".formatted(moved / seconds));
+        return moved;
+    }
+
+    // 読み取りからコピーと削除までを 1 つのトランザクションで行う。
+    // コピーした後に DELETE されたコメントがアーカイブに残って復活しないよう、並行した削除や更新とは書き込み競合で中断してやり直す。
+    // 移すものがなければ null、やり直しても競合した場合は 0 を返す
+    private Integer moveBatch(LocalDateTime cutoff, String collectionName) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    List<Document> batch = mongoTemplate.find(CommentArchives.olderThan(cutoff, batchSize),
+                            Document.class, collectionName);
+                    if (batch.isEmpty()) {
+                        return null;
+                    }
+                    BulkOperations copy = mongoTemplate.bulkOps(BulkMode.UNORDERED, CommentArchives.COLLECTION);
+                    batch.forEach(document -> copy.replaceOne(CommentArchives.byId(document), document,
+                            CommentArchives.UPSERT));
+                    copy.execute();
+                    return mongoTemplate.bulkOps(BulkMode.UNORDERED, collectionName)
+                            .remove(batch.stream().map(CommentArchives::byIdAndVersion).toList())
+                            .execute()
+                            .getDeletedCount();
+                });
+            } catch (DataAccessException e) {
+                if (!CommentArchives.isTransient(e)) {
+                    throw e;
+                }
+                if (attempt == MAX_ATTEMPTS) {
+                    logger.warn("コメントのアーカイブが {} 回競合したため、次回の実行に回します", attempt, e);
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private void createCollection() {
+        if (mongoTemplate.collectionExists(CommentArchives.COLLECTION)) {
+            return;
+        }
+        try {
+            mongoTemplate.getDb().createCollection(CommentArchives.COLLECTION, CommentArchives.storage(compressor));
+        } catch (MongoCommandException e) {
+            // 他のインスタンスが先に作成した
+            if (e.getErrorCode() != NAMESPACE_EXISTS) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.springboot.service;
+
+import java.time.LocalDateTime;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.CreateCollectionOptions;
+
+// アーカイブはドキュメントをそのまま移すため、Comment への変換を通さずに扱う
+final class CommentArchives {
+
+    static final String COLLECTION = "comment_archive";
+
+    static final FindAndReplaceOptions UPSERT = FindAndReplaceOptions.options().upsert();
+
+    private CommentArchives() {
+    }
+
+    // createdAt のインデックスを使い、古い順に limit 件取得する
+    static Query olderThan(LocalDateTime cutoff, int limit) {
+        return Query.query(Criteria.where("createdAt").lt(cutoff))
+                .with(Sort.by("createdAt"))
+                .limit(limit);
+    }
+
+    static Query byId(Document document) {
+        return Query.query(Criteria.where("_id").is(document.get("_id")));
+    }
+
+    // 読み取った時点から更新されていない場合だけ削除する
+    static Query byIdAndVersion(Document document) {
+        return Query.query(Criteria.where("_id").is(document.get("_id")).and("version").is(document.get("version")));
+    }
+
+    // 並行した書き込みとの競合でトランザクションが中断された場合。コピーは upsert、削除は version 付きのため、やり直してよい
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException
+                    && (mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                            || mongoException.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // WiredTiger のブロック圧縮はコレクション作成時にしか指定できない
+    static CreateCollectionOptions storage(String compressor) {
+        CreateCollectionOptions options = new CreateCollectionOptions();
+        if (!"none".equals(compressor)) {
+            options.storageEngineOptions(new Document("wiredTiger",
+                    new Document("configString", "block_compressor=" + compressor)));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.springboot.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+
+// 同期版と Reactive 版のバルク挿入で共通の前処理と結果の組み立て
+final class CommentBulkInserts {
+
+    private CommentBulkInserts() {
+    }
+
+    // バルク挿入では version が初期化されない。version を設定すると監査は既存のエンティティとして
+    // updatedAt だけを更新するため、createdAt もここで設定する
+    static void prepare(List<Comment> chunk) {
+        LocalDateTime now = LocalDateTime.now();
+        chunk.forEach(comment -> {
+            if (comment.getId() == null) {
+                comment.setId(new ObjectId().toHexString());
+            }
+            comment.setVersion(0L);
+            comment.setCreatedAt(now);
+            comment.setUpdatedAt(now);
+        });
+    }
+
+    // 要素ごとの失敗をチャンク内の位置で返す。バルク挿入の失敗でない場合は null
+    static Map<Integer, String> errors(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException bulk) {
+                return errors(bulk.getErrors());
+            }
+            if (cause instanceof MongoBulkWriteException bulk) {
+                return errors(bulk.getWriteErrors());
+            }
+        }
+        return null;
+    }
+
+    private static Map<Integer, String> errors(List<BulkWriteError> writeErrors) {
+        Map<Integer, String> errors = new HashMap<>();
+        writeErrors.forEach(error -> errors.put(error.getIndex(), error.getMessage()));
+        return errors;
+    }
+}
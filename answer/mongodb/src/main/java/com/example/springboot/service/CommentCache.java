@@ -0,0 +1,67 @@
+package com.example.springboot.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// findById の結果を ID ごとに保持する。読み込みと更新が競合しても、version の小さい値では上書きしない
+@Component
+class CommentCache {
+
+    // 削除済みの ID。削除前に読み込んだ値で上書きされないよう、version を最大にする
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private final Cache<String, Entry> cache;
+
+    CommentCache(@Value("${comment.cache.maximum-size:10000}") long maximumSize,
+            @Value("${comment.cache.expire-after-write:60s}") Duration expireAfterWrite,
+            MeterRegistry meterRegistry) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "comments");
+    }
+
+    // キャッシュにない場合は null。削除済みの場合は comment が null の Entry を返す
+    Entry get(String id) {
+        return cache.getIfPresent(id);
+    }
+
+    // 読み込んだ値と更新後の値。キャッシュ済みの値より新しい場合だけ置き換える
+    void putIfNewer(Comment comment) {
+        Entry entry = new Entry(comment, version(comment));
+        cache.asMap().merge(comment.getId(), entry,
+                (current, candidate) -> candidate.version() > current.version() ? candidate : current);
+    }
+
+    // 新規作成した値。同じ ID で削除済みになっていても置き換える
+    void put(Comment comment) {
+        cache.put(comment.getId(), new Entry(comment, version(comment)));
+    }
+
+    void putDeleted(String id) {
+        cache.put(id, new Entry(null, DELETED));
+    }
+
+    void clear() {
+        cache.invalidateAll();
+    }
+
+    // version のないドキュメントは、どの更新よりも古いものとして扱う
+    private static long version(Comment comment) {
+        return comment.getVersion() == null ? -1 : comment.getVersion();
+    }
+
+    record Entry(Comment comment, long version) {
+    }
+}
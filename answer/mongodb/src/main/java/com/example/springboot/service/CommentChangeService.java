@@ -0,0 +1,76 @@
+package com.example.springboot.service;
+
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+import reactor.core.publisher.Flux;
+
+@Service
+public class CommentChangeService {
+
+    private static final Set<OperationType> OPERATIONS = Set.of(OperationType.INSERT, OperationType.UPDATE,
+            OperationType.REPLACE, OperationType.DELETE);
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    // resumeToken が指定された場合はその変更の直後から、指定がない場合は購読開始以降の変更を流す
+    public Flux<CommentChange> changes(String resumeToken) {
+        Flux<CommentChange> changes = reactiveMongoTemplate.changeStream(Comment.class)
+                .withOptions(options -> {
+                    options.fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+                    if (resumeToken != null) {
+                        options.resumeAfter(new BsonDocument("_data", new BsonString(resumeToken)));
+                    }
+                })
+                .listen()
+                .filter(event -> OPERATIONS.contains(event.getOperationType()))
+                .map(CommentChange::from);
+        if (resumeToken == null) {
+            return changes;
+        }
+        // oplog から消えた、または不正なトークンでは再開できないため、全件の再取得を促す
+        return changes.onErrorResume(
+                e -> NestedExceptionUtils.getMostSpecificCause(e) instanceof MongoServerException,
+                e -> Flux.just(CommentChange.RESET));
+    }
+
+    public record CommentChange(String token, String operation, String id, Comment comment) {
+
+        public static final CommentChange RESET = new CommentChange(null, "reset", null, null);
+
+        // comment_archive へ移したコメント。削除とは違い、GET /api/comment/{id} で引き続き取得できる
+        public static final String ARCHIVE = "archive";
+
+        static CommentChange from(ChangeStreamEvent<Comment> event) {
+            BsonValue id = event.getRaw().getDocumentKey().get("_id");
+            return new CommentChange(
+                    event.getResumeToken().asDocument().getString("_data").getValue(),
+                    operation(event.getRaw()),
+                    id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue(),
+                    event.getBody());
+        }
+
+        // comment をトランザクションで削除するのはアーカイブだけなので、txnNumber の付いた削除はアーカイブとして配信する
+        static String operation(ChangeStreamDocument<?> document) {
+            if (document.getOperationType() == OperationType.DELETE && document.getTxnNumber() != null) {
+                return ARCHIVE;
+            }
+            return document.getOperationType().getValue();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.springboot.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.springboot.exception.exceptions.ServiceUnavailableException;
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.service.CommentService.BulkItemResult;
+import com.example.springboot.service.CommentService.WriteConcernMode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// 受け付けたコメントをキューに溜め、batch-size 件か flush-interval のどちらかに達したらまとめて挿入する
+@Service
+public class CommentIngestService {
+
+    // 停止を待機中のフラッシュスレッドに伝える。キューが一杯の場合は待機していないため入らなくてよい
+    private static final Pending STOP = new Pending(null, null);
+
+    private final Logger logger = LoggerFactory.getLogger(CommentIngestService.class);
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${comment.ingest.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    @Value("${comment.ingest.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${comment.ingest.flush-interval:100ms}")
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    // 受付の判定とキューへの追加を停止と排他にし、停止後にキューへ入るコメントをなくす
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+
+    private BlockingQueue<Pending> queue;
+    private Counter rejected;
+    private Counter failed;
+    private Counter unacknowledged;
+    private Thread flusher;
+    private boolean stopping;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("comment.ingest.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        rejected = Counter.builder("comment.ingest.rejected").register(meterRegistry);
+        failed = Counter.builder("comment.ingest.failed").register(meterRegistry);
+        unacknowledged = Counter.builder("comment.ingest.unacknowledged").register(meterRegistry);
+        stopping = false;
+        running = true;
+        flusher = new Thread(this::run, "comment-ingest");
+        flusher.start();
+    }
+
+    // 受付を止めてから、キューに残っているコメントを書き込む
+    @PreDestroy
+    void stop() throws InterruptedException {
+        stopLock.writeLock().lock();
+        try {
+            stopping = true;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+        running = false;
+        queue.offer(STOP);
+        flusher.join();
+        // フラッシュスレッドが割り込みで先に終了していた場合の残り
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.remove(STOP);
+        if (!rest.isEmpty()) {
+            flush(rest);
+        }
+    }
+
+    // キューが一杯の場合は待たずに断る。ID はこの時点で採番して返す
+    public String submit(Comment comment, WriteConcernMode writeConcern) throws ServiceUnavailableException {
+        comment.setId(new ObjectId().toHexString());
+        boolean accepted;
+        stopLock.readLock().lock();
+        try {
+            accepted = !stopping && queue.offer(new Pending(comment, writeConcern));
+        } finally {
+            stopLock.readLock().unlock();
+        }
+        if (!accepted) {
+            rejected.increment();
+            throw new ServiceUnavailableException("コメントの受付が混み合っています。時間をおいて再度お試しください。");
+        }
+        return comment.getId();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // 最初の 1 件を受け取ってから flush-interval の間、batch-size 件に達するまで待つ
+    private void collect(List<Pending> batch) throws InterruptedException {
+        long deadline = 0;
+        while (batch.size() < batchSize && (running || !queue.isEmpty())) {
+            long timeout = batch.isEmpty() ? flushInterval.toNanos() : deadline - System.nanoTime();
+            Pending next = queue.poll(timeout, TimeUnit.NANOSECONDS);
+            if (next == null || next == STOP) {
+                return;
+            }
+            if (batch.isEmpty()) {
+                deadline = System.nanoTime() + flushInterval.toNanos();
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.remove(STOP)) {
+                return;
+            }
+        }
+    }
+
+    // 書き込み保証ごとに 1 回の順序なしバルク書き込みにまとめる。失敗したコメントは再送しない。
+    // 応答を待たない書き込みは成否が分からないため、失敗とは別に数える
+    private void flush(List<Pending> batch) {
+        Map<WriteConcernMode, List<Comment>> groups = new EnumMap<>(WriteConcernMode.class);
+        batch.forEach(pending -> groups.computeIfAbsent(pending.writeConcern(), key -> new ArrayList<>())
+                .add(pending.comment()));
+        groups.forEach((writeConcern, comments) -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            long errors;
+            try {
+                List<BulkItemResult> results = commentService.bulkInsert(comments, writeConcern);
+                errors = results.stream()
+                        .filter(result -> result.acknowledged() && !result.inserted())
+                        .count();
+                unacknowledged.increment(results.stream().filter(result -> !result.acknowledged()).count());
+            } catch (RuntimeException e) {
+                logger.warn("非同期で受け付けたコメント {} 件を挿入できませんでした", comments.size(), e);
+                errors = comments.size();
+            }
+            sample.stop(Timer.builder("comment.ingest.flush")
+                    .tag("writeConcern", writeConcern.name())
+                    .register(meterRegistry));
+            failed.increment(errors);
+        });
+    }
+
+    private record Pending(Comment comment, WriteConcernMode writeConcern) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.springboot.service;
+
+import java.time.LocalDateTime;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Range.Bound;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+
+import com.example.springboot.persistence.codec.CommentCodecs;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+
+// 検索条件とソートをエンティティに宣言したインデックスに揃える
+final class CommentQueries {
+
+    static final Bson BY_ID = Sorts.ascending("_id");
+
+    private CommentQueries() {
+    }
+
+    // ドライバに直接渡すため、ID の変換は MappingMongoConverter と揃える
+    static Bson after(String after) {
+        return after == null ? new Document() : Filters.gt("_id", CommentCodecs.id(after));
+    }
+
+    // from 以上 to 未満。指定がない側は制限しない
+    static Range<LocalDateTime> createdAt(LocalDateTime from, LocalDateTime to) {
+        return Range.of(from == null ? Bound.unbounded() : Bound.inclusive(from),
+                to == null ? Bound.unbounded() : Bound.exclusive(to));
+    }
+
+    static Pageable byCreatedAt(int limit) {
+        return PageRequest.of(0, limit, Sort.by("createdAt"));
+    }
+
+    // createdAt のインデックスを逆順にたどり、新しい順に limit 件
+    static Query newest(int limit) {
+        return new Query().with(Sort.by(Sort.Direction.DESC, "createdAt")).limit(limit);
+    }
+
+    // 関連度の高い順に limit 件。本文以外の項目は一覧に必要なものだけを返す
+    static Query search(String text, int limit) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .includeScore()
+                .limit(limit);
+        query.fields().include("role", "content", "createdAt");
+        return query;
+    }
+}
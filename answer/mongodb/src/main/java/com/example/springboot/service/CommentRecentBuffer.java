@@ -0,0 +1,142 @@
+package com.example.springboot.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.web.response.CommentResponse;
+
+// 最近作成したコメントを capacity 件まで保持するリングバッファ。読み取りはロックを取らず、書き込みは CAS だけで行う。
+// 要素は変更できない CommentResponse で持ち、読み取り側は参照をコピーするだけにする
+@Component
+public class CommentRecentBuffer {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot> slots;
+    private final AtomicLong sequence = new AtomicLong();
+    // ID から書き込んだ位置を引き、更新と削除でバッファ全体を走査しない
+    private final Map<String, Long> positions = new ConcurrentHashMap<>();
+
+    public CommentRecentBuffer(@Value("${comment.recent.capacity:1000}") int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // 新しい順に最大 limit 件。削除した位置は詰めないため、limit 件に満たないことがある
+    public List<CommentResponse> recent(int limit) {
+        List<CommentResponse> comments = new ArrayList<>(Math.min(limit, capacity));
+        long head = sequence.get();
+        for (long position = head - 1; position >= Math.max(0, head - capacity) && comments.size() < limit;
+                position--) {
+            Slot slot = slots.get(index(position));
+            // 書き込み中の位置と、後から追い越された位置は飛ばす
+            if (slot != null && slot.position() == position && slot.comment() != null) {
+                comments.add(slot.comment());
+            }
+        }
+        return comments;
+    }
+
+    public void add(Comment comment) {
+        if (capacity == 0) {
+            return;
+        }
+        long position = sequence.getAndIncrement();
+        Slot slot = new Slot(position, comment.getId(), response(comment));
+        int index = index(position);
+        Slot current;
+        do {
+            current = slots.get(index);
+            // 1 周以上遅れた書き込みは捨てる
+            if (current != null && current.position() > position) {
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+        positions.put(comment.getId(), position);
+        if (current != null) {
+            positions.remove(current.id(), current.position());
+        }
+    }
+
+    // 起動時に Mongo から読み込んだコメント。新しい順に受け取り、古い方から積む
+    public void addAll(List<Comment> newestFirst) {
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            add(newestFirst.get(i));
+        }
+    }
+
+    // バッファにあるコメントだけを、version が大きい場合に置き換える
+    public void update(Comment comment) {
+        Long position = positions.get(comment.getId());
+        if (position == null) {
+            return;
+        }
+        int index = index(position);
+        Slot slot = new Slot(position, comment.getId(), response(comment));
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current == null || current.position() != position || current.comment() == null
+                    || version(current.comment().getVersion()) >= version(comment.getVersion())) {
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+    }
+
+    public void remove(String id) {
+        Long position = positions.remove(id);
+        if (position == null) {
+            return;
+        }
+        int index = index(position);
+        Slot removed = new Slot(position, id, null);
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current == null || current.position() != position) {
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, removed));
+    }
+
+    public void clear() {
+        for (int i = 0; i < capacity; i++) {
+            slots.set(i, null);
+        }
+        positions.clear();
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+
+    private static long version(Long version) {
+        return version == null ? -1 : version;
+    }
+
+    private static CommentResponse response(Comment comment) {
+        return CommentResponse.builder()
+                .id(comment.getId())
+                .role(comment.getRole())
+                .content(comment.getContent())
+                .createdAt(comment.getCreatedAt())
+                .updatedAt(comment.getUpdatedAt())
+                .version(comment.getVersion())
+                .build();
+    }
+
+    // comment が null の場合は削除済み
+    private record Slot(long position, String id, CommentResponse comment) {
+    }
+}
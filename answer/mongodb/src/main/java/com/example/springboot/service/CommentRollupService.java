@@ -0,0 +1,58 @@
+package com.example.springboot.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+
+@Service
+public class CommentRollupService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public void increment(Collection<Comment> comments, long delta) {
+        upsert(CommentRollups.increments(comments, delta));
+    }
+
+    // PUT と PATCH で role が変わった場合
+    public void move(Comment before, Comment after) {
+        upsert(CommentRollups.moves(before, after));
+    }
+
+    public List<CommentRollup> find(String role, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        return mongoTemplate.find(CommentRollups.range(role, granularity, from, to), CommentRollup.class);
+    }
+
+    private void upsert(List<Pair<Query, Update>> increments) {
+        if (!increments.isEmpty()) {
+            mongoTemplate.bulkOps(BulkMode.UNORDERED, CommentRollup.class).upsert(increments).execute();
+        }
+    }
+
+    // 差分の更新が漏れてずれた場合に備え、comment コレクションから集計し直す
+    @Scheduled(cron = "${comment.rollup.rebuild-cron:-}")
+    public void rebuild() {
+        Date start = mongoTemplate.executeCommand(CommentRollups.SERVER_TIME).getDate("localTime");
+        mongoTemplate.aggregate(CommentRollups.rebuild(mongoTemplate.getCollectionName(CommentRollup.class)),
+                Comment.class, CommentRollup.class);
+        mongoTemplate.remove(CommentRollups.staleSince(start), CommentRollup.class);
+    }
+
+    public void deleteAll() {
+        mongoTemplate.remove(new Query(), CommentRollup.class);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.springboot.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+
+// ロールアップの _id は role|granularity|bucket とし、差分の $inc と再集計の $merge で同じドキュメントを指す。
+// どちらもサーバーの時刻で updatedAt を更新し、再集計で更新されなかった古いバケットを見分ける
+final class CommentRollups {
+
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+    private static final String BUCKET_DATE_FORMAT = "%Y-%m-%dT%H:%M";
+
+    // 再集計を始めた時点のサーバーの時刻を localTime で返す
+    static final Document SERVER_TIME = new Document("hello", 1);
+
+    private CommentRollups() {
+    }
+
+    // 同じバケットへの増減はまとめて 1 回の upsert にする
+    static List<Pair<Query, Update>> increments(Collection<Comment> comments, long delta) {
+        Map<String, CommentRollup> rollups = new LinkedHashMap<>();
+        for (Comment comment : comments) {
+            if (comment.getCreatedAt() == null) {
+                continue;
+            }
+            String role = comment.getRole() == null ? "" : comment.getRole();
+            for (Granularity granularity : Granularity.values()) {
+                LocalDateTime bucket = granularity.truncate(comment.getCreatedAt());
+                CommentRollup rollup = rollups.computeIfAbsent(id(role, granularity, bucket),
+                        id -> CommentRollup.builder().id(id).role(role).granularity(granularity).bucket(bucket).build());
+                rollup.setCount(rollup.getCount() + delta);
+            }
+        }
+        return rollups.values().stream()
+                .filter(rollup -> rollup.getCount() != 0)
+                .map(rollup -> Pair.of(Query.query(Criteria.where("id").is(rollup.getId())), new Update()
+                        .setOnInsert("role", rollup.getRole())
+                        .setOnInsert("granularity", rollup.getGranularity())
+                        .setOnInsert("bucket", rollup.getBucket())
+                        .inc("count", rollup.getCount())
+                        .currentDate("updatedAt")))
+                .toList();
+    }
+
+    // role を変更した場合は、更新前の role のバケットから減算して更新後の role のバケットに加算する
+    static List<Pair<Query, Update>> moves(Comment before, Comment after) {
+        if (Objects.equals(before.getRole(), after.getRole())) {
+            return List.of();
+        }
+        return Stream.concat(increments(List.of(before), -1).stream(), increments(List.of(after), 1).stream())
+                .toList();
+    }
+
+    // from 以上 to 未満。指定がない側は制限しない
+    static Query range(String role, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        Criteria criteria = Criteria.where("role").is(role).and("granularity").is(granularity);
+        if (from != null || to != null) {
+            Criteria bucket = criteria.and("bucket");
+            if (from != null) {
+                bucket.gte(from);
+            }
+            if (to != null) {
+                bucket.lt(to);
+            }
+        }
+        return Query.query(criteria).with(Sort.by("bucket"));
+    }
+
+    // comment コレクションから全バケットを集計し直し、ロールアップに $merge で上書きする。
+    // $out と違ってコレクションを入れ替えないため、集計中に upsert された新しいバケットは残る
+    static Aggregation rebuild(String collectionName) {
+        String timezone = ZoneId.systemDefault().getId();
+        List<Document> buckets = Arrays.stream(Granularity.values())
+                .map(granularity -> new Document("granularity", granularity.name())
+                        .append("bucket", new Document("$dateTrunc", new Document("date", "$createdAt")
+                                .append("unit", granularity.dateTruncUnit())
+                                .append("timezone", timezone))))
+                .toList();
+        return Aggregation.newAggregation(
+                // アーカイブへ移したコメントも作成済みの件数に含める
+                stage(new Document("$unionWith", CommentArchives.COLLECTION)),
+                stage(new Document("$match", new Document("createdAt", new Document("$type", "date")))),
+                stage(new Document("$project", new Document("role", new Document("$ifNull", List.of("$role", "")))
+                        .append("buckets", buckets))),
+                stage(new Document("$unwind", "$buckets")),
+                stage(new Document("$group", new Document("_id", new Document("role", "$role")
+                        .append("granularity", "$buckets.granularity")
+                        .append("bucket", "$buckets.bucket"))
+                        .append("count", new Document("$sum", 1)))),
+                stage(new Document("$project", new Document("_id", new Document("$concat", List.of(
+                        "$_id.role", "|", "$_id.granularity", "|",
+                        new Document("$dateToString", new Document("date", "$_id.bucket")
+                                .append("format", BUCKET_DATE_FORMAT)
+                                .append("timezone", timezone)))))
+                        .append("role", "$_id.role")
+                        .append("granularity", "$_id.granularity")
+                        .append("bucket", "$_id.bucket")
+                        .append("count", 1)
+                        .append("updatedAt", "$$NOW"))),
+                stage(new Document("$merge", new Document("into", collectionName)
+                        .append("on", "_id")
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert"))));
+    }
+
+    // 再集計でも差分でも start 以降に更新されていないバケット。対応するコメントがもう存在しない
+    static Query staleSince(Date start) {
+        return Query.query(new Criteria().orOperator(
+                Criteria.where("updatedAt").lt(start),
+                Criteria.where("updatedAt").exists(false)));
+    }
+
+    static String id(String role, Granularity granularity, LocalDateTime bucket) {
+        return "%s|%s|%s".formatted(role, granularity.name(), bucket.format(BUCKET_FORMAT));
+    }
+
+    private static AggregationOperation stage(Document document) {
+        return context -> document;
+    }
+}
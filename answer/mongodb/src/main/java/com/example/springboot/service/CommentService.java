@@ -1,12 +1,39 @@
 package com.example.springboot.service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mapping.callback.EntityCallbacks;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import com.example.springboot.exception.exceptions.ConflictException;
+import com.example.springboot.exception.exceptions.NotFoundException;
+import com.example.springboot.persistence.codec.CommentCodecs;
 import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentSearchHit;
 import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.web.response.CommentResponse;
+import com.mongodb.WriteConcern;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 
 @Service
 public class CommentService {
@@ -14,27 +41,264 @@ public class CommentService {
     @Autowired
     private CommentRepository commentRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CommentRollupService commentRollupService;
+
+    @Autowired
+    private CommentCache commentCache;
+
+    @Autowired
+    private CommentRecentBuffer commentRecentBuffer;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${comment.bulk.chunk-size:1000}")
+    private int bulkChunkSize = 1000;
+
+    @Value("${comment.update.retry.max-attempts:5}")
+    private int updateMaxAttempts = 5;
+
+    @Value("${comment.update.retry.backoff:5ms}")
+    private Duration updateBackoff = Duration.ofMillis(5);
+
+    private final Map<WriteConcernMode, MongoTemplate> writeTemplates = new ConcurrentHashMap<>();
+
+    // Web サーバーが起動して書き込みを受け付ける前に、最近のコメントを読み込んでおく
+    @PostConstruct
+    void warmRecent() {
+        if (commentRecentBuffer.capacity() > 0) {
+            commentRecentBuffer.addAll(mongoTemplate.find(CommentQueries.newest(commentRecentBuffer.capacity()),
+                    Comment.class));
+        }
+    }
+
     public List<Comment> findAll() {
         return commentRepository.findAll();
     }
 
+    // _id の昇順で after より後ろを取得する。1 件多く取得して次ページの有無を判定する
+    // Comment と MappingMongoConverter を経由せず、BSON から CommentResponse を直接組み立てる
+    public Slice<CommentResponse> findPage(String after, int limit) {
+        List<CommentResponse> comments = mongoTemplate.execute(Comment.class, collection -> collection
+                .withCodecRegistry(CommentCodecs.REGISTRY)
+                .find(CommentQueries.after(after), CommentResponse.class)
+                .sort(CommentQueries.BY_ID)
+                .limit(limit + 1)
+                .into(new ArrayList<>(limit + 1)));
+        boolean hasNext = comments.size() > limit;
+        return new SliceImpl<>(hasNext ? comments.subList(0, limit) : comments, PageRequest.of(0, limit), hasNext);
+    }
+
+    // Mongo には問い合わせず、リングバッファだけから返す
+    public List<CommentResponse> findRecent(int limit) {
+        return commentRecentBuffer.recent(limit);
+    }
+
     public Comment findById(String id) {
-        return commentRepository.findById(id).orElse(null);
+        CommentCache.Entry cached = commentCache.get(id);
+        if (cached != null) {
+            return cached.comment();
+        }
+        // アーカイブ済みのコメントは comment_archive から読む
+        Comment comment = commentRepository.findById(id)
+                .orElseGet(() -> mongoTemplate.findById(id, Comment.class, CommentArchives.COLLECTION));
+        if (comment != null) {
+            commentCache.putIfNewer(comment);
+        }
+        return comment;
     }
 
     public Long count() {
         return commentRepository.count();
     }
 
+    public List<Comment> findByRole(String role, LocalDateTime from, LocalDateTime to, int limit) {
+        return commentRepository.findByRoleAndCreatedAtBetween(role, CommentQueries.createdAt(from, to),
+                CommentQueries.byCreatedAt(limit));
+    }
+
+    public List<CommentSearchHit> search(String text, int limit) {
+        return mongoTemplate.find(CommentQueries.search(text, limit), CommentSearchHit.class,
+                mongoTemplate.getCollectionName(Comment.class));
+    }
+
+    public Long count(CountMode countMode) {
+        return switch (countMode) {
+            case EXACT -> commentRepository.count();
+            // コレクションのメタデータから取得するため、件数によらず一定時間で返る
+            case ESTIMATED -> mongoTemplate.estimatedCount(Comment.class);
+            case NONE -> null;
+        };
+    }
+
+    // 新規作成の場合のみロールアップに加算する。API からの更新は update と patch を通り、role の変更は modify で反映する
     public Comment save(Comment comment) {
-        return commentRepository.save(comment);
+        boolean isNew = comment.getVersion() == null;
+        Comment saved = commentRepository.save(comment);
+        if (isNew) {
+            commentCache.put(saved);
+            commentRecentBuffer.add(saved);
+            commentRollupService.increment(List.of(saved), 1);
+        } else {
+            commentCache.putIfNewer(saved);
+            commentRecentBuffer.update(saved);
+        }
+        return saved;
+    }
+
+    // 更新前の role と version を読み、その version を条件に findAndModify で更新する
+    public Comment update(String id, Long version, String role, String content)
+            throws NotFoundException, ConflictException {
+        return modify(id, version, CommentUpdates.replace(role, content));
+    }
+
+    public Comment patch(String id, Long version, String role, String content)
+            throws NotFoundException, ConflictException {
+        return modify(id, version, CommentUpdates.patch(role, content));
+    }
+
+    // version の指定がない場合、読んでから書くまでに他の更新が入ったら読み直してやり直す
+    private Comment modify(String id, Long version, Update update) throws NotFoundException, ConflictException {
+        for (int attempt = 1;; attempt++) {
+            boolean archived = false;
+            Comment before = mongoTemplate.findOne(CommentUpdates.preImage(id), Comment.class);
+            if (before == null) {
+                // アーカイブ済みのコメントは comment_archive のまま更新する
+                before = mongoTemplate.findOne(CommentUpdates.preImage(id), Comment.class, CommentArchives.COLLECTION);
+                archived = true;
+            }
+            if (before == null) {
+                throw CommentUpdates.notFound(id);
+            }
+            if (version != null && !version.equals(before.getVersion())) {
+                throw CommentUpdates.conflict(id, version);
+            }
+            Query query = CommentUpdates.query(id, before.getVersion());
+            Comment comment = archived
+                    ? mongoTemplate.findAndModify(query, update, CommentUpdates.RETURN_NEW, Comment.class,
+                            CommentArchives.COLLECTION)
+                    : mongoTemplate.findAndModify(query, update, CommentUpdates.RETURN_NEW, Comment.class);
+            if (comment != null) {
+                commentRollupService.move(before, comment);
+                commentCache.putIfNewer(comment);
+                commentRecentBuffer.update(comment);
+                return comment;
+            }
+            if (version != null || attempt >= updateMaxAttempts) {
+                throw CommentUpdates.conflict(id, before.getVersion());
+            }
+            meterRegistry.counter("comment.update.retries").increment();
+            backoff(attempt);
+        }
+    }
+
+    // 指数的に伸ばした上限までの一様乱数だけ待ち、同じコメントへの書き込みが揃って再衝突しないようにする
+    private void backoff(int attempt) {
+        long bound = updateBackoff.toNanos() << Math.min(attempt - 1, 16);
+        if (bound > 0) {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound));
+        }
+    }
+
+    public List<BulkItemResult> bulkInsert(List<Comment> comments) {
+        return bulkInsert(comments, mongoTemplate, true);
+    }
+
+    public List<BulkItemResult> bulkInsert(List<Comment> comments, WriteConcernMode writeConcern) {
+        return bulkInsert(comments, writeTemplates.computeIfAbsent(writeConcern, this::writeTemplate),
+                writeConcern.writeConcern().isAcknowledged());
+    }
+
+    // 書き込み保証だけを変えた MongoTemplate。監査などのエンティティコールバックは共有する
+    private MongoTemplate writeTemplate(WriteConcernMode writeConcern) {
+        MongoTemplate template = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(),
+                mongoTemplate.getConverter());
+        template.setWriteConcern(writeConcern.writeConcern());
+        template.setEntityCallbacks(EntityCallbacks.create(applicationContext));
+        return template;
+    }
+
+    // 順序なしで comment.bulk.chunk-size 件ずつ挿入し、失敗した要素があっても残りは挿入する。
+    // 応答を待たない場合は挿入されたか分からないため、キャッシュとロールアップには反映しない
+    private List<BulkItemResult> bulkInsert(List<Comment> comments, MongoTemplate template, boolean acknowledged) {
+        List<BulkItemResult> results = new ArrayList<>(comments.size());
+        for (int from = 0; from < comments.size(); from += bulkChunkSize) {
+            List<Comment> chunk = comments.subList(from, Math.min(from + bulkChunkSize, comments.size()));
+            Map<Integer, String> errors = Map.of();
+            CommentBulkInserts.prepare(chunk);
+            try {
+                template.bulkOps(BulkMode.UNORDERED, Comment.class).insert(chunk).execute();
+            } catch (BulkOperationException e) {
+                errors = CommentBulkInserts.errors(e);
+            }
+            List<Comment> inserted = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                results.add(new BulkItemResult(from + i, chunk.get(i).getId(), errors.get(i), acknowledged));
+                if (acknowledged && !errors.containsKey(i)) {
+                    inserted.add(chunk.get(i));
+                    commentCache.put(chunk.get(i));
+                    commentRecentBuffer.add(chunk.get(i));
+                }
+            }
+            commentRollupService.increment(inserted, 1);
+        }
+        return results;
     }
 
+    // 削除したドキュメントの role と createdAt からロールアップを減算する
     public void deleteById(String id) {
-        commentRepository.deleteById(id);
+        Comment removed = mongoTemplate.findAndRemove(CommentUpdates.byId(id), Comment.class);
+        if (removed == null) {
+            removed = mongoTemplate.findAndRemove(CommentUpdates.byId(id), Comment.class, CommentArchives.COLLECTION);
+        }
+        if (removed != null) {
+            commentCache.putDeleted(id);
+            commentRecentBuffer.remove(id);
+            commentRollupService.increment(List.of(removed), -1);
+        }
     }
 
     public void deleteAll() {
         commentRepository.deleteAll();
+        mongoTemplate.remove(new Query(), CommentArchives.COLLECTION);
+        commentRollupService.deleteAll();
+        commentCache.clear();
+        commentRecentBuffer.clear();
+    }
+
+    public record BulkItemResult(int index, String id, String error, boolean acknowledged) {
+
+        public BulkItemResult(int index, String id, String error) {
+            this(index, id, error, true);
+        }
+
+        public boolean inserted() {
+            return acknowledged && error == null;
+        }
+    }
+
+    public enum CountMode {
+        EXACT, ESTIMATED, NONE
+    }
+
+    public enum WriteConcernMode {
+        UNACKNOWLEDGED(WriteConcern.UNACKNOWLEDGED), W1(WriteConcern.W1), MAJORITY(WriteConcern.MAJORITY);
+
+        private final WriteConcern writeConcern;
+
+        WriteConcernMode(WriteConcern writeConcern) {
+            this.writeConcern = writeConcern;
+        }
+
+        public WriteConcern writeConcern() {
+            return writeConcern;
+        }
     }
 }
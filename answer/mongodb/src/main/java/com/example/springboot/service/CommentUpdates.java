@@ -0,0 +1,66 @@
+package com.example.springboot.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.springboot.exception.exceptions.ConflictException;
+import com.example.springboot.exception.exceptions.NotFoundException;
+
+// findAndModify は監査を通らないため、updatedAt と version はここで更新する
+final class CommentUpdates {
+
+    static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private CommentUpdates() {
+    }
+
+    static Query query(String id, Long version) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        if (version != null) {
+            query.addCriteria(Criteria.where("version").is(version));
+        }
+        return query;
+    }
+
+    // ロールアップの移動と version の比較に必要な項目だけを読む
+    static Query preImage(String id) {
+        Query query = byId(id);
+        query.fields().include("role", "createdAt", "version");
+        return query;
+    }
+
+    static Query byId(String id) {
+        return Query.query(Criteria.where("id").is(id));
+    }
+
+    static Update replace(String role, String content) {
+        return audited().set("role", role).set("content", content);
+    }
+
+    static Update patch(String role, String content) {
+        Update update = audited();
+        if (role != null) {
+            update.set("role", role);
+        }
+        if (content != null) {
+            update.set("content", content);
+        }
+        return update;
+    }
+
+    static NotFoundException notFound(String id) {
+        return new NotFoundException("IDが %s のコメントは存在しません。".formatted(id));
+    }
+
+    static ConflictException conflict(String id, Long version) {
+        return new ConflictException("IDが %s のコメントはバージョン %d から更新されています。".formatted(id, version));
+    }
+
+    private static Update audited() {
+        return new Update().set("updatedAt", LocalDateTime.now()).inc("version", 1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.springboot.service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.stereotype.Service;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class ReactiveCommentRollupService {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public Mono<Void> increment(Collection<Comment> comments, long delta) {
+        return Mono.defer(() -> upsert(CommentRollups.increments(comments, delta)));
+    }
+
+    // PUT と PATCH で role が変わった場合
+    public Mono<Void> move(Comment before, Comment after) {
+        return Mono.defer(() -> upsert(CommentRollups.moves(before, after)));
+    }
+
+    private Mono<Void> upsert(List<Pair<Query, Update>> increments) {
+        if (increments.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulkOperations = reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED,
+                CommentRollup.class);
+        increments.forEach(increment -> bulkOperations.upsert(increment.getFirst(), increment.getSecond()));
+        return bulkOperations.execute().then();
+    }
+
+    public Flux<CommentRollup> find(String role, Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        return reactiveMongoTemplate.find(CommentRollups.range(role, granularity, from, to), CommentRollup.class);
+    }
+
+    public Mono<Void> rebuild() {
+        return reactiveMongoTemplate.executeCommand(CommentRollups.SERVER_TIME)
+                .map(hello -> hello.getDate("localTime"))
+                .flatMap(start -> reactiveMongoTemplate.aggregate(
+                        CommentRollups.rebuild(reactiveMongoTemplate.getCollectionName(CommentRollup.class)),
+                        Comment.class, CommentRollup.class)
+                        .then(reactiveMongoTemplate.remove(CommentRollups.staleSince(start), CommentRollup.class)))
+                .then();
+    }
+}
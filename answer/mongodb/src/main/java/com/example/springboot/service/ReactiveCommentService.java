@@ -0,0 +1,205 @@
+package com.example.springboot.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.example.springboot.exception.exceptions.ConflictException;
+import com.example.springboot.persistence.codec.CommentCodecs;
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentSearchHit;
+import com.example.springboot.persistence.repository.ReactiveCommentRepository;
+import com.example.springboot.service.CommentService.BulkItemResult;
+import com.example.springboot.service.CommentService.CountMode;
+import com.example.springboot.web.response.CommentResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+@Service
+public class ReactiveCommentService {
+
+    @Autowired
+    private ReactiveCommentRepository reactiveCommentRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private ReactiveCommentRollupService reactiveCommentRollupService;
+
+    @Autowired
+    private CommentCache commentCache;
+
+    @Autowired
+    private CommentRecentBuffer commentRecentBuffer;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${comment.bulk.chunk-size:1000}")
+    private int bulkChunkSize = 1000;
+
+    @Value("${comment.update.retry.max-attempts:5}")
+    private int updateMaxAttempts = 5;
+
+    @Value("${comment.update.retry.backoff:5ms}")
+    private Duration updateBackoff = Duration.ofMillis(5);
+
+    // _id の昇順で after より後ろを limit 件取得する
+    public Flux<CommentResponse> findPage(String after, int limit) {
+        return reactiveMongoTemplate.execute(Comment.class, collection -> collection
+                .withCodecRegistry(CommentCodecs.REGISTRY)
+                .find(CommentQueries.after(after), CommentResponse.class)
+                .sort(CommentQueries.BY_ID)
+                .limit(limit));
+    }
+
+    // 購読側の要求に合わせてカーソルから取得する
+    public Flux<CommentResponse> streamAll() {
+        return reactiveMongoTemplate.execute(Comment.class, collection -> collection
+                .withCodecRegistry(CommentCodecs.REGISTRY)
+                .find(CommentResponse.class)
+                .sort(CommentQueries.BY_ID));
+    }
+
+    // Mongo には問い合わせず、リングバッファだけから返す
+    public Flux<CommentResponse> findRecent(int limit) {
+        return Flux.fromIterable(commentRecentBuffer.recent(limit));
+    }
+
+    public Mono<Comment> findById(String id) {
+        return Mono.defer(() -> {
+            CommentCache.Entry cached = commentCache.get(id);
+            return cached != null
+                    ? Mono.justOrEmpty(cached.comment())
+                    : reactiveCommentRepository.findById(id)
+                            .switchIfEmpty(Mono.defer(() -> reactiveMongoTemplate.findById(id, Comment.class,
+                                    CommentArchives.COLLECTION)))
+                            .doOnNext(commentCache::putIfNewer);
+        });
+    }
+
+    public Flux<Comment> findByRole(String role, LocalDateTime from, LocalDateTime to, int limit) {
+        return reactiveCommentRepository.findByRoleAndCreatedAtBetween(role, CommentQueries.createdAt(from, to),
+                CommentQueries.byCreatedAt(limit));
+    }
+
+    public Flux<CommentSearchHit> search(String text, int limit) {
+        return reactiveMongoTemplate.find(CommentQueries.search(text, limit), CommentSearchHit.class,
+                reactiveMongoTemplate.getCollectionName(Comment.class));
+    }
+
+    public Mono<Long> count(CountMode countMode) {
+        return switch (countMode) {
+            case EXACT -> reactiveCommentRepository.count();
+            case ESTIMATED -> reactiveMongoTemplate.estimatedCount(Comment.class);
+            case NONE -> Mono.empty();
+        };
+    }
+
+    public Mono<Comment> save(Comment comment) {
+        boolean isNew = comment.getVersion() == null;
+        return reactiveCommentRepository.save(comment)
+                .doOnNext(isNew ? commentCache::put : commentCache::putIfNewer)
+                .doOnNext(isNew ? commentRecentBuffer::add : commentRecentBuffer::update)
+                .flatMap(saved -> isNew
+                        ? reactiveCommentRollupService.increment(List.of(saved), 1).thenReturn(saved)
+                        : Mono.just(saved));
+    }
+
+    // 同期版と同じく順序なしで chunk-size 件ずつ挿入する。チャンクは前のチャンクの完了後に送る
+    public Flux<BulkItemResult> bulkInsert(List<Comment> comments) {
+        return Flux.range(0, (comments.size() + bulkChunkSize - 1) / bulkChunkSize)
+                .concatMap(n -> {
+                    int from = n * bulkChunkSize;
+                    List<Comment> chunk = comments.subList(from, Math.min(from + bulkChunkSize, comments.size()));
+                    CommentBulkInserts.prepare(chunk);
+                    return reactiveMongoTemplate.bulkOps(BulkMode.UNORDERED, Comment.class).insert(chunk).execute()
+                            .thenReturn(Map.<Integer, String>of())
+                            .onErrorResume(e -> CommentBulkInserts.errors(e) != null,
+                                    e -> Mono.just(CommentBulkInserts.errors(e)))
+                            .flatMapMany(errors -> inserted(from, chunk, errors));
+                });
+    }
+
+    private Flux<BulkItemResult> inserted(int from, List<Comment> chunk, Map<Integer, String> errors) {
+        List<BulkItemResult> results = new ArrayList<>(chunk.size());
+        List<Comment> inserted = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            results.add(new BulkItemResult(from + i, chunk.get(i).getId(), errors.get(i)));
+            if (!errors.containsKey(i)) {
+                inserted.add(chunk.get(i));
+                commentCache.put(chunk.get(i));
+                commentRecentBuffer.add(chunk.get(i));
+            }
+        }
+        return reactiveCommentRollupService.increment(inserted, 1).thenMany(Flux.fromIterable(results));
+    }
+
+    public Mono<Comment> update(String id, Long version, String role, String content) {
+        return modify(id, version, CommentUpdates.replace(role, content));
+    }
+
+    public Mono<Comment> patch(String id, Long version, String role, String content) {
+        return modify(id, version, CommentUpdates.patch(role, content));
+    }
+
+    // 同期版と同じく、更新前の role と version を読んでから、その version を条件に更新する
+    private Mono<Comment> modify(String id, Long version, Update update) {
+        return Mono.defer(() -> preImage(id))
+                .switchIfEmpty(Mono.error(() -> CommentUpdates.notFound(id)))
+                .flatMap(found -> {
+                    Comment before = found.comment();
+                    if (version != null && !version.equals(before.getVersion())) {
+                        return Mono.error(CommentUpdates.conflict(id, version));
+                    }
+                    return reactiveMongoTemplate.findAndModify(CommentUpdates.query(id, before.getVersion()), update,
+                            CommentUpdates.RETURN_NEW, Comment.class, found.collection())
+                            .switchIfEmpty(Mono.error(() -> CommentUpdates.conflict(id, before.getVersion())))
+                            .flatMap(comment -> reactiveCommentRollupService.move(before, comment).thenReturn(comment));
+                })
+                // version の指定がない場合、読んでから書くまでに他の更新が入ったら読み直してやり直す
+                .retryWhen(Retry.backoff(updateMaxAttempts - 1, updateBackoff)
+                        .jitter(0.5)
+                        .filter(e -> version == null && e instanceof ConflictException)
+                        .doBeforeRetry(signal -> meterRegistry.counter("comment.update.retries").increment())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .doOnNext(commentCache::putIfNewer)
+                .doOnNext(commentRecentBuffer::update);
+    }
+
+    // アーカイブ済みのコメントは comment_archive のまま更新する
+    private Mono<PreImage> preImage(String id) {
+        return reactiveMongoTemplate.findOne(CommentUpdates.preImage(id), Comment.class)
+                .map(comment -> new PreImage(comment, reactiveMongoTemplate.getCollectionName(Comment.class)))
+                .switchIfEmpty(Mono.defer(() -> reactiveMongoTemplate.findOne(CommentUpdates.preImage(id),
+                        Comment.class, CommentArchives.COLLECTION)
+                        .map(comment -> new PreImage(comment, CommentArchives.COLLECTION))));
+    }
+
+    private record PreImage(Comment comment, String collection) {
+    }
+
+    public Mono<Void> deleteById(String id) {
+        return reactiveMongoTemplate.findAndRemove(CommentUpdates.byId(id), Comment.class)
+                .switchIfEmpty(Mono.defer(() -> reactiveMongoTemplate.findAndRemove(CommentUpdates.byId(id),
+                        Comment.class, CommentArchives.COLLECTION)))
+                .doOnNext(removed -> {
+                    commentCache.putDeleted(id);
+                    commentRecentBuffer.remove(id);
+                })
+                .flatMap(removed -> reactiveCommentRollupService.increment(List.of(removed), -1));
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.springboot.web.controller;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.http.codec.ServerSentEvent;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.service.CommentChangeService.CommentChange;
+import com.example.springboot.web.response.CommentChangeResponse;
+import com.example.springboot.web.response.CommentResponse;
+
+import reactor.core.publisher.Flux;
+
+// SSE の id にレジュームトークンを入れ、再接続時の Last-Event-ID から再開できるようにする
+final class CommentChangeEvents {
+
+    private CommentChangeEvents() {
+    }
+
+    static Flux<ServerSentEvent<CommentChangeResponse>> toEvents(Flux<CommentChange> changes,
+            Function<Comment, CommentResponse> mapper, Duration heartbeatInterval) {
+        Flux<ServerSentEvent<CommentChangeResponse>> events = changes
+                .map(change -> ServerSentEvent.<CommentChangeResponse>builder()
+                        .id(change.token())
+                        .event(change.operation())
+                        .data(CommentChangeResponse.builder()
+                                .operation(change.operation())
+                                .id(change.id())
+                                .comment(change.comment() == null ? null : mapper.apply(change.comment()))
+                                .build())
+                        .build());
+        // 接続直後に応答を確定させ、変更がない間も接続を切られないようにコメント行を送る
+        Flux<ServerSentEvent<CommentChangeResponse>> heartbeats = Flux.interval(Duration.ZERO, heartbeatInterval)
+                .map(tick -> ServerSentEvent.<CommentChangeResponse>builder().comment("heartbeat").build());
+        return events.publish(shared -> Flux.merge(shared, heartbeats.takeUntilOther(shared.then())));
+    }
+}
@@ -1,45 +1,184 @@
 package com.example.springboot.web.controller;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.example.springboot.exception.exceptions.ConflictException;
+import com.example.springboot.exception.exceptions.NotFoundException;
+import com.example.springboot.exception.exceptions.ServiceUnavailableException;
 import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+import com.example.springboot.persistence.entity.CommentSearchHit;
+import com.example.springboot.service.CommentChangeService;
+import com.example.springboot.service.CommentIngestService;
+import com.example.springboot.service.CommentRollupService;
 import com.example.springboot.service.CommentService;
+import com.example.springboot.service.CommentService.BulkItemResult;
+import com.example.springboot.service.CommentService.CountMode;
+import com.example.springboot.service.CommentService.WriteConcernMode;
+import com.example.springboot.web.request.CommentBulkRequest;
 import com.example.springboot.web.request.CommentRequest;
+import com.example.springboot.web.response.CommentAcceptedResponse;
+import com.example.springboot.web.response.CommentBulkItemResponse;
+import com.example.springboot.web.response.CommentBulkResponse;
+import com.example.springboot.web.response.CommentChangeResponse;
 import com.example.springboot.web.response.CommentIndexResponse;
 import com.example.springboot.web.response.CommentResponse;
+import com.example.springboot.web.response.CommentRollupIndexResponse;
+import com.example.springboot.web.response.CommentRollupResponse;
+import com.example.springboot.web.response.CommentSearchItemResponse;
+import com.example.springboot.web.response.CommentSearchResponse;
 
 import jakarta.servlet.http.HttpServletResponse;
+import reactor.core.publisher.Flux;
 
 @RestController
 @RequestMapping("/api/comment")
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class CommentController {
 
     @Autowired
     private CommentService commentService;
 
+    @Value("${comment.pagination.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${comment.pagination.max-limit:1000}")
+    private int maxLimit;
+
+    @Value("${comment.search.default-limit:20}")
+    private int searchDefaultLimit;
+
+    @Value("${comment.search.max-limit:100}")
+    private int searchMaxLimit;
+
+    @Value("${comment.recent.default-limit:20}")
+    private int recentDefaultLimit;
+
+    // バッファにない件数は返せないため、容量を上限にする
+    @Value("${comment.recent.capacity:1000}")
+    private int recentMaxLimit;
+
+    @Autowired
+    private CommentChangeService commentChangeService;
+
+    @Autowired
+    private CommentRollupService commentRollupService;
+
+    @Autowired
+    private CommentIngestService commentIngestService;
+
+    @Value("${comment.changes.heartbeat-interval:15s}")
+    private Duration heartbeatInterval;
+
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public CommentIndexResponse findAll() {
+    public CommentIndexResponse findAll(@RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "EXACT") CountMode count) {
+        int pageSize = Math.max(1, Math.min(limit == null ? defaultLimit : limit, maxLimit));
+        Slice<CommentResponse> slice = commentService.findPage(ContinuationToken.decode(after), pageSize);
+        List<CommentResponse> comments = slice.getContent();
         return CommentIndexResponse.builder()
-                .count(commentService.count())
-                .comments(commentService.findAll().stream()
+                .count(commentService.count(count))
+                .comments(comments)
+                .next(slice.hasNext() ? ContinuationToken.encode(comments.get(comments.size() - 1).getId()) : null)
+                .build();
+    }
+
+    @GetMapping(params = "role")
+    @ResponseStatus(HttpStatus.OK)
+    public CommentIndexResponse findByRole(@RequestParam String role,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize = Math.max(1, Math.min(limit == null ? defaultLimit : limit, maxLimit));
+        return CommentIndexResponse.builder()
+                .comments(commentService.findByRole(role, from, to, pageSize).stream()
                         .map(this::map)
                         .toList())
                 .build();
     }
 
+    // Mongo には問い合わせず、メモリ上の最近のコメントだけから新しい順に返す
+    @GetMapping("/recent")
+    @ResponseStatus(HttpStatus.OK)
+    public CommentIndexResponse findRecent(@RequestParam(required = false) Integer limit) {
+        int size = Math.max(1, Math.min(limit == null ? recentDefaultLimit : limit, recentMaxLimit));
+        return CommentIndexResponse.builder()
+                .comments(commentService.findRecent(size))
+                .build();
+    }
+
+    @GetMapping("/search")
+    @ResponseStatus(HttpStatus.OK)
+    public CommentSearchResponse search(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        if (q.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "検索語を指定してください。");
+        }
+        int size = Math.max(1, Math.min(limit == null ? searchDefaultLimit : limit, searchMaxLimit));
+        return CommentSearchResponse.builder()
+                .comments(commentService.search(q, size).stream()
+                        .map(this::map)
+                        .toList())
+                .build();
+    }
+
+    @GetMapping("/rollups")
+    @ResponseStatus(HttpStatus.OK)
+    public CommentRollupIndexResponse findRollups(@RequestParam String role,
+            @RequestParam(defaultValue = "HOUR") Granularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to) {
+        return CommentRollupIndexResponse.builder()
+                .role(role)
+                .granularity(granularity)
+                .rollups(commentRollupService.find(role, granularity, from, to).stream()
+                        .map(this::map)
+                        .toList())
+                .build();
+    }
+
+    @PostMapping("/rollups/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void rebuildRollups() {
+        commentRollupService.rebuild();
+    }
+
+    // 再接続時はブラウザが送る Last-Event-ID から再開する
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<CommentChangeResponse>> changes(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return CommentChangeEvents.toEvents(commentChangeService.changes(lastEventId), this::map,
+                heartbeatInterval);
+    }
+
     @GetMapping("/{id}")
     public CommentResponse findById(HttpServletResponse httpServletResponse, @PathVariable String id) {
         Comment comment = commentService.findById(id);
@@ -60,22 +199,60 @@ public class CommentController {
                 .build()));
     }
 
-    @PutMapping("/{id}")
-    public CommentResponse update(HttpServletResponse httpServletResponse, @PathVariable String id,
-            @RequestBody CommentRequest commentRequest) {
-        Comment comment = commentService.findById(id);
-        if (comment == null) {
-            httpServletResponse.setStatus(HttpStatus.NOT_FOUND.value());
-            return null;
-        }
-        httpServletResponse.setStatus(HttpStatus.OK.value());
-        return map(commentService.save(Comment.builder()
-                .id(id)
+    // キューに積んだ時点で 202 を返す。挿入は comment.ingest.flush-interval ごとにまとめて行う
+    @PostMapping("/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CommentAcceptedResponse insertAsync(@RequestBody CommentRequest commentRequest,
+            @RequestParam(defaultValue = "W1") WriteConcernMode writeConcern) throws ServiceUnavailableException {
+        String id = commentIngestService.submit(Comment.builder()
                 .role(commentRequest.getRole())
                 .content(commentRequest.getContent())
-                .createdAt(comment.getCreatedAt())
-                .version(comment.getVersion())
-                .build()));
+                .build(), writeConcern);
+        return CommentAcceptedResponse.builder()
+                .id(id)
+                .writeConcern(writeConcern)
+                .build();
+    }
+
+    @PostMapping("/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    public CommentBulkResponse bulkInsert(@RequestBody CommentBulkRequest commentBulkRequest) {
+        List<BulkItemResult> results = commentService.bulkInsert(commentBulkRequest.getComments().stream()
+                .map(request -> Comment.builder()
+                        .id(request.getId())
+                        .role(request.getRole())
+                        .content(request.getContent())
+                        .build())
+                .toList());
+        int inserted = (int) results.stream().filter(BulkItemResult::inserted).count();
+        return CommentBulkResponse.builder()
+                .inserted(inserted)
+                .failed(results.size() - inserted)
+                .results(results.stream()
+                        .map(result -> CommentBulkItemResponse.builder()
+                                .index(result.index())
+                                .id(result.id())
+                                .inserted(result.inserted())
+                                .message(result.error())
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    @PutMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public CommentResponse update(@PathVariable String id, @RequestBody CommentRequest commentRequest)
+            throws NotFoundException, ConflictException {
+        return map(commentService.update(id, commentRequest.getVersion(), commentRequest.getRole(),
+                commentRequest.getContent()));
+    }
+
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public CommentResponse patch(@PathVariable String id, @RequestBody CommentRequest commentRequest)
+            throws NotFoundException, ConflictException {
+        return map(commentService.patch(id, commentRequest.getVersion(), commentRequest.getRole(),
+                commentRequest.getContent()));
     }
 
     @DeleteMapping("/{id}")
@@ -94,4 +271,21 @@ public class CommentController {
                 .version(comment.getVersion())
                 .build();
     }
+
+    private CommentRollupResponse map(CommentRollup rollup) {
+        return CommentRollupResponse.builder()
+                .bucket(rollup.getBucket())
+                .count(rollup.getCount())
+                .build();
+    }
+
+    private CommentSearchItemResponse map(CommentSearchHit hit) {
+        return CommentSearchItemResponse.builder()
+                .id(hit.getId())
+                .role(hit.getRole())
+                .content(hit.getContent())
+                .createdAt(hit.getCreatedAt())
+                .score(hit.getScore())
+                .build();
+    }
 }
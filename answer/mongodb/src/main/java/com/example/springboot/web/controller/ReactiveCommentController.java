@@ -0,0 +1,308 @@
+package com.example.springboot.web.controller;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+import com.example.springboot.persistence.entity.CommentSearchHit;
+import com.example.springboot.service.CommentChangeService;
+import com.example.springboot.service.CommentIngestService;
+import com.example.springboot.service.CommentService.BulkItemResult;
+import com.example.springboot.service.CommentService.CountMode;
+import com.example.springboot.service.CommentService.WriteConcernMode;
+import com.example.springboot.service.ReactiveCommentRollupService;
+import com.example.springboot.service.ReactiveCommentService;
+import com.example.springboot.web.request.CommentBulkRequest;
+import com.example.springboot.web.request.CommentRequest;
+import com.example.springboot.web.response.CommentAcceptedResponse;
+import com.example.springboot.web.response.CommentBulkItemResponse;
+import com.example.springboot.web.response.CommentBulkResponse;
+import com.example.springboot.web.response.CommentChangeResponse;
+import com.example.springboot.web.response.CommentIndexResponse;
+import com.example.springboot.web.response.CommentResponse;
+import com.example.springboot.web.response.CommentRollupIndexResponse;
+import com.example.springboot.web.response.CommentRollupResponse;
+import com.example.springboot.web.response.CommentSearchItemResponse;
+import com.example.springboot.web.response.CommentSearchResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/comment")
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveCommentController {
+
+    @Autowired
+    private ReactiveCommentService reactiveCommentService;
+
+    @Value("${comment.pagination.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${comment.pagination.max-limit:1000}")
+    private int maxLimit;
+
+    @Value("${comment.search.default-limit:20}")
+    private int searchDefaultLimit;
+
+    @Value("${comment.search.max-limit:100}")
+    private int searchMaxLimit;
+
+    @Value("${comment.recent.default-limit:20}")
+    private int recentDefaultLimit;
+
+    // バッファにない件数は返せないため、容量を上限にする
+    @Value("${comment.recent.capacity:1000}")
+    private int recentMaxLimit;
+
+    @Autowired
+    private CommentChangeService commentChangeService;
+
+    @Autowired
+    private CommentIngestService commentIngestService;
+
+    @Autowired
+    private ReactiveCommentRollupService reactiveCommentRollupService;
+
+    @Value("${comment.changes.heartbeat-interval:15s}")
+    private Duration heartbeatInterval;
+
+    @GetMapping
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<CommentIndexResponse> findAll(@RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "EXACT") CountMode count) {
+        int pageSize = Math.max(1, Math.min(limit == null ? defaultLimit : limit, maxLimit));
+        // 1 件多く取得して次ページの有無を判定する
+        Mono<List<CommentResponse>> comments = reactiveCommentService
+                .findPage(ContinuationToken.decode(after), pageSize + 1)
+                .collectList();
+        Mono<Optional<Long>> total = reactiveCommentService.count(count).map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+        return Mono.zip(comments, total).map(tuple -> {
+            List<CommentResponse> list = tuple.getT1();
+            boolean hasNext = list.size() > pageSize;
+            List<CommentResponse> page = hasNext ? list.subList(0, pageSize) : list;
+            return CommentIndexResponse.builder()
+                    .count(tuple.getT2().orElse(null))
+                    .comments(page)
+                    .next(hasNext ? ContinuationToken.encode(page.get(pageSize - 1).getId()) : null)
+                    .build();
+        });
+    }
+
+    @GetMapping(produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    public Flux<CommentResponse> stream() {
+        return reactiveCommentService.streamAll();
+    }
+
+    @GetMapping(params = "role")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<CommentIndexResponse> findByRole(@RequestParam String role,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize = Math.max(1, Math.min(limit == null ? defaultLimit : limit, maxLimit));
+        return reactiveCommentService.findByRole(role, from, to, pageSize)
+                .map(this::map)
+                .collectList()
+                .map(comments -> CommentIndexResponse.builder()
+                        .comments(comments)
+                        .build());
+    }
+
+    // Mongo には問い合わせず、メモリ上の最近のコメントだけから新しい順に返す
+    @GetMapping("/recent")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<CommentIndexResponse> findRecent(@RequestParam(required = false) Integer limit) {
+        int size = Math.max(1, Math.min(limit == null ? recentDefaultLimit : limit, recentMaxLimit));
+        return reactiveCommentService.findRecent(size)
+                .collectList()
+                .map(comments -> CommentIndexResponse.builder()
+                        .comments(comments)
+                        .build());
+    }
+
+    @GetMapping("/search")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<CommentSearchResponse> search(@RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        if (q.isBlank()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "検索語を指定してください。"));
+        }
+        int size = Math.max(1, Math.min(limit == null ? searchDefaultLimit : limit, searchMaxLimit));
+        return reactiveCommentService.search(q, size)
+                .map(this::map)
+                .collectList()
+                .map(comments -> CommentSearchResponse.builder()
+                        .comments(comments)
+                        .build());
+    }
+
+    @GetMapping("/rollups")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<CommentRollupIndexResponse> findRollups(@RequestParam String role,
+            @RequestParam(defaultValue = "HOUR") Granularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to) {
+        return reactiveCommentRollupService.find(role, granularity, from, to)
+                .map(this::map)
+                .collectList()
+                .map(rollups -> CommentRollupIndexResponse.builder()
+                        .role(role)
+                        .granularity(granularity)
+                        .rollups(rollups)
+                        .build());
+    }
+
+    @PostMapping("/rollups/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> rebuildRollups() {
+        return reactiveCommentRollupService.rebuild();
+    }
+
+    // 再接続時はブラウザが送る Last-Event-ID から再開する
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<CommentChangeResponse>> changes(
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return CommentChangeEvents.toEvents(commentChangeService.changes(lastEventId), this::map,
+                heartbeatInterval);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<CommentResponse>> findById(@PathVariable String id) {
+        return reactiveCommentService.findById(id)
+                .map(comment -> ResponseEntity.ok(map(comment)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<CommentResponse> insert(@RequestBody CommentRequest commentRequest) {
+        return reactiveCommentService.save(Comment.builder()
+                .role(commentRequest.getRole())
+                .content(commentRequest.getContent())
+                .build())
+                .map(this::map);
+    }
+
+    // キューへの追加は待たずに終わるため、イベントループ上で呼び出してよい
+    @PostMapping("/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<CommentAcceptedResponse> insertAsync(@RequestBody CommentRequest commentRequest,
+            @RequestParam(defaultValue = "W1") WriteConcernMode writeConcern) {
+        return Mono.fromCallable(() -> CommentAcceptedResponse.builder()
+                .id(commentIngestService.submit(Comment.builder()
+                        .role(commentRequest.getRole())
+                        .content(commentRequest.getContent())
+                        .build(), writeConcern))
+                .writeConcern(writeConcern)
+                .build());
+    }
+
+    @PostMapping("/bulk")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<CommentBulkResponse> bulkInsert(@RequestBody CommentBulkRequest commentBulkRequest) {
+        return reactiveCommentService.bulkInsert(commentBulkRequest.getComments().stream()
+                .map(request -> Comment.builder()
+                        .id(request.getId())
+                        .role(request.getRole())
+                        .content(request.getContent())
+                        .build())
+                .toList())
+                .collectList()
+                .map(results -> {
+                    int inserted = (int) results.stream().filter(BulkItemResult::inserted).count();
+                    return CommentBulkResponse.builder()
+                            .inserted(inserted)
+                            .failed(results.size() - inserted)
+                            .results(results.stream()
+                                    .map(result -> CommentBulkItemResponse.builder()
+                                            .index(result.index())
+                                            .id(result.id())
+                                            .inserted(result.inserted())
+                                            .message(result.error())
+                                            .build())
+                                    .toList())
+                            .build();
+                });
+    }
+
+    @PutMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<CommentResponse> update(@PathVariable String id, @RequestBody CommentRequest commentRequest) {
+        return reactiveCommentService.update(id, commentRequest.getVersion(), commentRequest.getRole(),
+                commentRequest.getContent())
+                .map(this::map);
+    }
+
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<CommentResponse> patch(@PathVariable String id, @RequestBody CommentRequest commentRequest) {
+        return reactiveCommentService.patch(id, commentRequest.getVersion(), commentRequest.getRole(),
+                commentRequest.getContent())
+                .map(this::map);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteById(@PathVariable String id) {
+        return reactiveCommentService.deleteById(id);
+    }
+
+    private CommentResponse map(Comment comment) {
+        return CommentResponse.builder()
+                .id(comment.getId())
+                .role(comment.getRole())
+                .content(comment.getContent())
+                .createdAt(comment.getCreatedAt())
+                .updatedAt(comment.getUpdatedAt())
+                .version(comment.getVersion())
+                .build();
+    }
+
+    private CommentRollupResponse map(CommentRollup rollup) {
+        return CommentRollupResponse.builder()
+                .bucket(rollup.getBucket())
+                .count(rollup.getCount())
+                .build();
+    }
+
+    private CommentSearchItemResponse map(CommentSearchHit hit) {
+        return CommentSearchItemResponse.builder()
+                .id(hit.getId())
+                .role(hit.getRole())
+                .content(hit.getContent())
+                .createdAt(hit.getCreatedAt())
+                .score(hit.getScore())
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.springboot.web.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// id を指定すると、同じバッチを再送しても重複して登録されない
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentBulkItemRequest {
+
+    private String id;
+    private String role;
+    private String content;
+}
@@ -0,0 +1,15 @@
+package com.example.springboot.web.request;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentBulkRequest {
+
+    private List<CommentBulkItemRequest> comments = List.of();
+}
@@ -14,4 +14,5 @@ public class CommentRequest {
     @Id
     private String role;
     private String content;
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.springboot.web.response;
+
+import com.example.springboot.service.CommentService.WriteConcernMode;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentAcceptedResponse {
+
+    private String id;
+    private WriteConcernMode writeConcern;
+}
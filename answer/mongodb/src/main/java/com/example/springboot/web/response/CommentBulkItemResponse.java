@@ -0,0 +1,18 @@
+package com.example.springboot.web.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentBulkItemResponse {
+
+    private int index;
+    private String id;
+    private boolean inserted;
+    private String message;
+}
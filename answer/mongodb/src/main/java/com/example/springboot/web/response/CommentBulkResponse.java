@@ -0,0 +1,19 @@
+package com.example.springboot.web.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentBulkResponse {
+
+    private int inserted;
+    private int failed;
+    private List<CommentBulkItemResponse> results;
+}
@@ -0,0 +1,16 @@
+package com.example.springboot.web.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentChangeResponse {
+    private String operation;
+    private String id;
+    private CommentResponse comment;
+}
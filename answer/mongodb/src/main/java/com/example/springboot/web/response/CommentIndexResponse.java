@@ -15,4 +15,5 @@ public class CommentIndexResponse {
 
     private Long count;
     private List<CommentResponse> comments;
+    private String next;
 }
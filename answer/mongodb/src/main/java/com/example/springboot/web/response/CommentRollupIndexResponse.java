@@ -0,0 +1,21 @@
+package com.example.springboot.web.response;
+
+import java.util.List;
+
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentRollupIndexResponse {
+
+    private String role;
+    private Granularity granularity;
+    private List<CommentRollupResponse> rollups;
+}
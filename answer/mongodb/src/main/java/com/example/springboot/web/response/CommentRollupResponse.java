@@ -0,0 +1,17 @@
+package com.example.springboot.web.response;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentRollupResponse {
+    private LocalDateTime bucket;
+    private long count;
+}
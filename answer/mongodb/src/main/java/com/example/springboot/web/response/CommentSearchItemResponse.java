@@ -0,0 +1,20 @@
+package com.example.springboot.web.response;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentSearchItemResponse {
+    private String id;
+    private String role;
+    private String content;
+    private LocalDateTime createdAt;
+    private Float score;
+}
@@ -5,6 +5,8 @@ import com.example.springboot.persistence.repository.CommentRepository;
 import com.example.springboot.web.response.CommentIndexResponse;
 import com.example.springboot.web.response.CommentResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -33,6 +35,9 @@ class CommentApiTest {
     @Autowired
     private ObjectMapper mapper;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private final HttpHeaders httpHeaders = new HttpHeaders();
 
     @BeforeEach
@@ -125,6 +130,53 @@ class CommentApiTest {
                 .containsExactly("1", "user", "こんばんわ", 1L);
     }
 
+    @Test
+    void updateWithVersion() {
+        // given
+        Map<String, Object> commentRequestMap = new HashMap<>();
+        commentRequestMap.put("role", "user");
+        commentRequestMap.put("content", "こんばんわ");
+        commentRequestMap.put("version", 0);
+        // when
+        ResponseEntity<CommentResponse> first = testRestTemplate.exchange("/api/comment/1", HttpMethod.PUT,
+                new HttpEntity<>(commentRequestMap, httpHeaders), CommentResponse.class);
+        ResponseEntity<String> second = testRestTemplate.exchange("/api/comment/1", HttpMethod.PUT,
+                new HttpEntity<>(commentRequestMap, httpHeaders), String.class);
+        // then
+        assertThat(first.getStatusCodeValue()).isEqualTo(200);
+        assertThat(first.getBody().getVersion()).isEqualTo(1L);
+        assertThat(first.getBody().getCreatedAt()).isBefore(first.getBody().getUpdatedAt());
+        assertThat(second.getStatusCodeValue()).isEqualTo(409);
+    }
+
+    @Test
+    void updateNotFound() {
+        // given
+        Map<String, String> commentRequestMap = new HashMap<>();
+        commentRequestMap.put("role", "user");
+        commentRequestMap.put("content", "こんばんわ");
+        // when
+        ResponseEntity<String> responseEntity = testRestTemplate.exchange("/api/comment/99", HttpMethod.PUT,
+                new HttpEntity<>(commentRequestMap, httpHeaders), String.class);
+        // then
+        assertThat(responseEntity.getStatusCodeValue()).isEqualTo(404);
+    }
+
+    @Test
+    void patch() {
+        // given
+        Map<String, Object> commentRequestMap = new HashMap<>();
+        commentRequestMap.put("content", "おはよう");
+        // when
+        ResponseEntity<CommentResponse> responseEntity = testRestTemplate.exchange("/api/comment/1",
+                HttpMethod.PATCH, new HttpEntity<>(commentRequestMap, httpHeaders), CommentResponse.class);
+        // then
+        assertThat(responseEntity.getStatusCodeValue()).isEqualTo(200);
+        assertThat(responseEntity.getBody())
+                .extracting(CommentResponse::getId, CommentResponse::getRole, CommentResponse::getContent, CommentResponse::getVersion)
+                .containsExactly("1", "user", "おはよう", 1L);
+    }
+
     @Test
     void deleteById() {
         // when
@@ -150,4 +202,25 @@ class CommentApiTest {
         assertThat(body.getComments().get(1).getCreatedAt()).isAfter("2023-08-13T00:00:00");
         assertThat(body.getComments().get(1).getUpdatedAt()).isAfter("2023-08-13T00:00:00");
     }
+
+    @Test
+    void metrics() {
+        // when
+        ResponseEntity<CommentIndexResponse> responseEntity = testRestTemplate.exchange("/api/comment", HttpMethod.GET,
+                new HttpEntity<>(httpHeaders), CommentIndexResponse.class);
+        // then
+        assertThat(responseEntity.getStatusCodeValue()).isEqualTo(200);
+        Timer find = meterRegistry.get("mongodb.driver.commands").tag("command", "find").timer();
+        assertThat(find.count()).isPositive();
+        assertThat(find.takeSnapshot().histogramCounts()).isNotEmpty();
+        assertThat(meterRegistry.get("mongodb.driver.commands").tag("command", "insert").timer().count())
+                .isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.get("mongodb.driver.commands.request.size").tag("command", "insert").summary()
+                .totalAmount()).isPositive();
+        assertThat(meterRegistry.get("mongodb.driver.commands.response.size").tag("command", "find").summary()
+                .totalAmount()).isPositive();
+        assertThat(meterRegistry.get("mongodb.driver.pool.checkout").tag("status", "SUCCESS").timers())
+                .anySatisfy(timer -> assertThat(timer.count()).isPositive());
+        assertThat(meterRegistry.get("mongodb.driver.pool.saturation").gauges()).isNotEmpty();
+    }
 }
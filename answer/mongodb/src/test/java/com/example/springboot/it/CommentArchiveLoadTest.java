@@ -0,0 +1,110 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.springboot.Application;
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.service.CommentArchiveService;
+
+// mvn test -Dtest=CommentArchiveLoadTest -Dloadtest=true で実行する
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class CommentArchiveLoadTest {
+
+    private static final int COMMENTS = 200_000;
+    private static final int RECENT = 20_000;
+    private static final int READS = 20_000;
+
+    @Test
+    void アーカイブのスループットと読み取りへの影響() {
+        // given
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0", "spring.main.web-application-type=none")
+                .run()) {
+            MongoTemplate mongoTemplate = context.getBean(MongoTemplate.class);
+            CommentRepository commentRepository = context.getBean(CommentRepository.class);
+            CommentArchiveService commentArchiveService = context.getBean(CommentArchiveService.class);
+            List<Comment> comments = new ArrayList<>();
+            for (int i = 0; i < COMMENTS; i++) {
+                comments.add(Comment.builder().id("%08d".formatted(i)).role("user")
+                        .content("こんにちは".repeat(20) + i).version(0L).build());
+            }
+            mongoTemplate.bulkOps(BulkMode.UNORDERED, Comment.class).insert(comments).execute();
+            mongoTemplate.updateMulti(Query.query(Criteria.where("id").lt("%08d".formatted(COMMENTS - RECENT))),
+                    new Update().set("createdAt", LocalDateTime.parse("2020-08-01T00:00:00")), Comment.class);
+            // キャッシュを通さずに comment コレクションの最近のコメントを読む
+            Runnable read = () -> commentRepository.findById("%08d".formatted(
+                    COMMENTS - RECENT + ThreadLocalRandom.current().nextInt(RECENT)));
+            measure(read, READS / 10);
+            long[] before = measure(read, READS);
+            // when
+            AtomicBoolean archiving = new AtomicBoolean(true);
+            CompletableFuture<long[]> during = CompletableFuture.supplyAsync(() -> {
+                List<Long> latencies = new ArrayList<>();
+                while (archiving.get()) {
+                    long start = System.nanoTime();
+                    read.run();
+                    latencies.add(System.nanoTime() - start);
+                }
+                return latencies.stream().mapToLong(Long::longValue).toArray();
+            });
+            long start = System.nanoTime();
+            long moved = commentArchiveService.archive(LocalDateTime.parse("2021-01-01T00:00:00"));
+            long elapsed = System.nanoTime() - start;
+            archiving.set(false);
+            long[] after = measure(read, READS);
+            // then
+            System.out.printf("archive: moved=%d, throughput=%.0f docs/s%n", moved, moved * 1e9 / elapsed);
+            print("before", before);
+            print("during", during.join());
+            print("after", after);
+            print(mongoTemplate, "comment");
+            print(mongoTemplate, "comment_archive");
+            assertThat(moved).isEqualTo(COMMENTS - RECENT);
+            mongoTemplate.dropCollection(Comment.class);
+            mongoTemplate.dropCollection("comment_archive");
+        }
+    }
+
+    private static long[] measure(Runnable read, int count) {
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            read.run();
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static void print(String phase, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%s: reads=%d, p50=%dus, p99=%dus%n", phase, latencies.length,
+                latencies[latencies.length / 2] / 1000,
+                latencies[(int) Math.ceil(latencies.length * 0.99) - 1] / 1000);
+    }
+
+    private static void print(MongoTemplate mongoTemplate, String collectionName) {
+        Document stats = mongoTemplate.executeCommand(new Document("collStats", collectionName));
+        System.out.printf("%s: count=%s, size=%s bytes, storageSize=%s bytes%n", collectionName,
+                stats.get("count"), stats.get("size"), stats.get("storageSize"));
+    }
+}
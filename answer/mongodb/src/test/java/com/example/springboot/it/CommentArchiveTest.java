@@ -0,0 +1,143 @@
+package com.example.springboot.it;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.service.CommentArchiveService;
+import com.example.springboot.web.response.CommentResponse;
+import com.example.springboot.web.response.CommentRollupIndexResponse;
+import com.example.springboot.web.response.CommentRollupResponse;
+import org.assertj.core.groups.Tuple;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.*;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentArchiveTest {
+
+    private static final String ARCHIVE = "comment_archive";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CommentArchiveService commentArchiveService;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeEach
+    void setUp() {
+        // キャッシュを通さないよう、API ではなく直接登録する
+        mongoTemplate.insert(Comment.builder().id("1").role("user").content("こんにちは").build());
+        mongoTemplate.insert(Comment.builder().id("2").role("assistant").content("なにかお手伝いできますか").build());
+        mongoTemplate.insert(Comment.builder().id("3").role("user").content("こんばんわ").build());
+        mongoTemplate.updateMulti(Query.query(Criteria.where("id").in("1", "2")),
+                new Update().set("createdAt", LocalDateTime.parse("2020-08-01T00:00:00")), Comment.class);
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.remove(new Query(), Comment.class);
+        mongoTemplate.remove(new Query(), CommentRollup.class);
+        mongoTemplate.dropCollection(ARCHIVE);
+    }
+
+    @Test
+    void 古いコメントをアーカイブへ移す() {
+        // when
+        long moved = commentArchiveService.archive(LocalDateTime.parse("2021-01-01T00:00:00"));
+        // then
+        assertThat(moved).isEqualTo(2);
+        assertThat(mongoTemplate.findAll(Comment.class)).extracting(Comment::getId).containsExactly("3");
+        assertThat(mongoTemplate.findAll(Comment.class, ARCHIVE)).extracting(Comment::getId, Comment::getContent)
+                .containsExactlyInAnyOrder(Tuple.tuple("1", "こんにちは"), Tuple.tuple("2", "なにかお手伝いできますか"));
+        Document options = mongoTemplate.getDb().listCollections()
+                .filter(new Document("name", ARCHIVE)).first().get("options", Document.class);
+        assertThat(options.toJson()).contains("block_compressor=zstd");
+    }
+
+    @Test
+    void アーカイブしたコメントもIDで取得できる() {
+        // given
+        commentArchiveService.archive(LocalDateTime.parse("2021-01-01T00:00:00"));
+        // when
+        ResponseEntity<CommentResponse> responseEntity = testRestTemplate.exchange("/api/comment/1", HttpMethod.GET,
+                new HttpEntity<>(httpHeaders), CommentResponse.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        assertThat(responseEntity.getBody())
+                .extracting(CommentResponse::getId, CommentResponse::getRole, CommentResponse::getContent)
+                .containsExactly("1", "user", "こんにちは");
+        assertThat(responseEntity.getBody().getCreatedAt()).isEqualTo("2020-08-01T00:00:00");
+    }
+
+    @Test
+    void アーカイブしたコメントを削除する() {
+        // given
+        commentArchiveService.archive(LocalDateTime.parse("2021-01-01T00:00:00"));
+        // when
+        ResponseEntity<Void> responseEntity = testRestTemplate.exchange("/api/comment/2", HttpMethod.DELETE,
+                new HttpEntity<>(httpHeaders), Void.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(204);
+        assertThat(testRestTemplate.exchange("/api/comment/2", HttpMethod.GET, new HttpEntity<>(httpHeaders),
+                CommentResponse.class).getStatusCode().value()).isEqualTo(404);
+        assertThat(mongoTemplate.count(new Query(), ARCHIVE)).isEqualTo(1);
+    }
+
+    @Test
+    void アーカイブしたコメントを更新する() {
+        // given
+        commentArchiveService.archive(LocalDateTime.parse("2021-01-01T00:00:00"));
+        String body = "{\"role\": \"user\", \"content\": \"こんばんは\", \"version\": 0}";
+        // when
+        ResponseEntity<CommentResponse> responseEntity = testRestTemplate.exchange("/api/comment/1", HttpMethod.PUT,
+                new HttpEntity<>(body, httpHeaders), CommentResponse.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        assertThat(responseEntity.getBody())
+                .extracting(CommentResponse::getContent, CommentResponse::getVersion)
+                .containsExactly("こんばんは", 1L);
+        assertThat(mongoTemplate.findById("1", Comment.class, ARCHIVE).getContent()).isEqualTo("こんばんは");
+        assertThat(testRestTemplate.exchange("/api/comment/1", HttpMethod.PUT, new HttpEntity<>(body, httpHeaders),
+                CommentResponse.class).getStatusCode().value()).isEqualTo(409);
+    }
+
+    @Test
+    void 再集計はアーカイブしたコメントも数える() {
+        // given
+        commentArchiveService.archive(LocalDateTime.parse("2021-01-01T00:00:00"));
+        // when
+        testRestTemplate.exchange("/api/comment/rollups/rebuild", HttpMethod.POST, new HttpEntity<>(httpHeaders),
+                Void.class);
+        // then
+        assertThat(total("user")).isEqualTo(2);
+        assertThat(total("assistant")).isEqualTo(1);
+    }
+
+    private long total(String role) {
+        ResponseEntity<CommentRollupIndexResponse> responseEntity = testRestTemplate.exchange(
+                "/api/comment/rollups?role={role}&granularity=HOUR", HttpMethod.GET,
+                new HttpEntity<>(httpHeaders), CommentRollupIndexResponse.class, role);
+        return responseEntity.getBody().getRollups().stream().mapToLong(CommentRollupResponse::getCount).sum();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.springboot.it;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.web.response.CommentBulkItemResponse;
+import com.example.springboot.web.response.CommentBulkResponse;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "comment.bulk.chunk-size=500")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentBulkTest {
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeEach
+    void setUp() {
+        commentRepository.save(Comment.builder().id("1").role("user").content("こんにちは").build());
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll();
+    }
+
+    @Test
+    void bulkInsert() {
+        // given
+        List<Map<String, String>> comments = List.of(
+                Map.of("role", "user", "content", "おはよう"),
+                Map.of("id", "2", "role", "assistant", "content", "なにかお手伝いできますか"));
+        // when
+        ResponseEntity<CommentBulkResponse> responseEntity = bulkInsert(comments);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        assertThat(responseEntity.getBody())
+                .extracting(CommentBulkResponse::getInserted, CommentBulkResponse::getFailed)
+                .containsExactly(2, 0);
+        String id = responseEntity.getBody().getResults().get(0).getId();
+        assertThat(commentRepository.findById(id)).get()
+                .extracting(Comment::getRole, Comment::getContent, Comment::getVersion)
+                .containsExactly("user", "おはよう", 0L);
+        assertThat(commentRepository.findById("2").get().getCreatedAt()).isNotNull();
+        assertThat(commentRepository.findById("2").get().getUpdatedAt()).isNotNull();
+    }
+
+    @Test
+    void 重複したIDの要素だけが失敗する() {
+        // given
+        List<Map<String, String>> comments = List.of(
+                Map.of("role", "user", "content", "おはよう"),
+                Map.of("id", "1", "role", "user", "content", "こんにちは"),
+                Map.of("role", "user", "content", "こんばんは"));
+        // when
+        ResponseEntity<CommentBulkResponse> responseEntity = bulkInsert(comments);
+        // then
+        assertThat(responseEntity.getBody())
+                .extracting(CommentBulkResponse::getInserted, CommentBulkResponse::getFailed)
+                .containsExactly(2, 1);
+        assertThat(responseEntity.getBody().getResults())
+                .extracting(CommentBulkItemResponse::getIndex, CommentBulkItemResponse::isInserted)
+                .containsExactly(Tuple.tuple(0, true), Tuple.tuple(1, false), Tuple.tuple(2, true));
+        assertThat(responseEntity.getBody().getResults().get(1).getMessage()).contains("E11000");
+        assertThat(commentRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void 一件ずつの登録と比較する() {
+        // given
+        int rows = 5000;
+        for (int i = 0; i < 200; i++) {
+            testRestTemplate.exchange("/api/comment", HttpMethod.POST,
+                    new HttpEntity<>(Map.of("role", "user", "content", "warmup" + i), httpHeaders), Void.class);
+        }
+        // when
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            testRestTemplate.exchange("/api/comment", HttpMethod.POST,
+                    new HttpEntity<>(Map.of("role", "user", "content", "single" + i), httpHeaders), Void.class);
+        }
+        long single = System.nanoTime() - start;
+
+        List<Map<String, String>> comments = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            comments.add(Map.of("role", "user", "content", "bulk" + i));
+        }
+        start = System.nanoTime();
+        ResponseEntity<CommentBulkResponse> responseEntity = bulkInsert(comments);
+        long bulk = System.nanoTime() - start;
+        // then
+        System.out.printf("insert throughput: single=%.0f docs/s, bulk=%.0f docs/s%n",
+                rows * 1e9 / single, rows * 1e9 / bulk);
+        assertThat(responseEntity.getBody().getInserted()).isEqualTo(rows);
+        assertThat(bulk).isLessThan(single);
+    }
+
+    private ResponseEntity<CommentBulkResponse> bulkInsert(List<Map<String, String>> comments) {
+        return testRestTemplate.exchange("/api/comment/bulk", HttpMethod.POST,
+                new HttpEntity<>(Map.of("comments", comments), httpHeaders), CommentBulkResponse.class);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.springboot.it;
+
+import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.web.response.CommentResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "management.endpoints.web.exposure.include=metrics")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentCacheApiTest {
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeEach
+    void setUp() {
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll();
+    }
+
+    @Test
+    void 繰り返し読むとキャッシュにヒットする() {
+        // given
+        String id = create().getId();
+        double hits = gets("hit");
+        // when
+        for (int i = 0; i < 10; i++) {
+            assertThat(get(id).getStatusCode().value()).isEqualTo(200);
+        }
+        // then
+        assertThat(gets("hit") - hits).isEqualTo(10);
+    }
+
+    @Test
+    void 更新後は新しい値を返す() {
+        // given
+        String id = create().getId();
+        get(id);
+        // when
+        testRestTemplate.exchange("/api/comment/{id}", HttpMethod.PATCH,
+                new HttpEntity<>(Map.of("content", "こんばんは"), httpHeaders), CommentResponse.class, id);
+        // then
+        assertThat(get(id).getBody())
+                .extracting(CommentResponse::getContent, CommentResponse::getVersion)
+                .containsExactly("こんばんは", 1L);
+    }
+
+    @Test
+    void 削除後は見つからない() {
+        // given
+        String id = create().getId();
+        get(id);
+        // when
+        testRestTemplate.exchange("/api/comment/{id}", HttpMethod.DELETE, new HttpEntity<>(httpHeaders),
+                Void.class, id);
+        // then
+        assertThat(get(id).getStatusCode().value()).isEqualTo(404);
+    }
+
+    private CommentResponse create() {
+        return testRestTemplate.exchange("/api/comment", HttpMethod.POST,
+                new HttpEntity<>(Map.of("role", "user", "content", "こんにちは"), httpHeaders),
+                CommentResponse.class).getBody();
+    }
+
+    private ResponseEntity<CommentResponse> get(String id) {
+        return testRestTemplate.exchange("/api/comment/{id}", HttpMethod.GET, new HttpEntity<>(httpHeaders),
+                CommentResponse.class, id);
+    }
+
+    private double gets(String result) {
+        JsonNode body = testRestTemplate.getForObject(
+                "/actuator/metrics/cache.gets?tag=cache:comments&tag=result:{result}", JsonNode.class, result);
+        return body.get("measurements").get(0).get("value").asDouble();
+    }
+}
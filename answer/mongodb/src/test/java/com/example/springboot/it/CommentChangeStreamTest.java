@@ -0,0 +1,167 @@
+package com.example.springboot.it;
+
+import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.service.CommentArchiveService;
+import com.example.springboot.web.response.CommentChangeResponse;
+import com.example.springboot.web.response.CommentResponse;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 埋め込み Mongo を単一ノードのレプリカセットとして起動して change stream を購読する
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentChangeStreamTest {
+
+    // 購読を開始してから change stream のカーソルが開くまで待つ時間
+    private static final Duration OPEN_DELAY = Duration.ofSeconds(1);
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private CommentArchiveService commentArchiveService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll();
+        mongoTemplate.dropCollection("comment_archive");
+    }
+
+    @Test
+    void 挿入更新削除を配信する() {
+        // when
+        Flux<ServerSentEvent<CommentChangeResponse>> body = changes(null);
+        // then
+        StepVerifier.create(body)
+                .thenAwait(OPEN_DELAY)
+                .then(() -> {
+                    CommentResponse created = insert("こんにちは");
+                    webTestClient.patch().uri("/api/comment/{id}", created.getId())
+                            .bodyValue(Map.of("content", "こんばんは")).exchange()
+                            .expectStatus().isOk();
+                    webTestClient.delete().uri("/api/comment/{id}", created.getId()).exchange()
+                            .expectStatus().isNoContent();
+                })
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("insert");
+                    assertThat(event.id()).isNotBlank();
+                    assertThat(event.data().getComment())
+                            .extracting(CommentResponse::getContent, CommentResponse::getVersion)
+                            .containsExactly("こんにちは", 0L);
+                })
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("update");
+                    assertThat(event.data().getComment())
+                            .extracting(CommentResponse::getContent, CommentResponse::getVersion)
+                            .containsExactly("こんばんは", 1L);
+                })
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("delete");
+                    assertThat(event.data().getId()).isNotBlank();
+                    assertThat(event.data().getComment()).isNull();
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void アーカイブへの移動は削除と区別して配信する() {
+        // when
+        Flux<ServerSentEvent<CommentChangeResponse>> body = changes(null);
+        // then
+        AtomicReference<String> id = new AtomicReference<>();
+        StepVerifier.create(body)
+                .thenAwait(OPEN_DELAY)
+                .then(() -> {
+                    id.set(insert("こんにちは").getId());
+                    commentArchiveService.archive(LocalDateTime.now().plusDays(1));
+                })
+                .assertNext(event -> assertThat(event.event()).isEqualTo("insert"))
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("archive");
+                    assertThat(event.data().getId()).isEqualTo(id.get());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+        webTestClient.get().uri("/api/comment/{id}", id.get()).exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void 切断中の変更をLastEventIDから受け取る() {
+        // given
+        AtomicReference<String> lastEventId = new AtomicReference<>();
+        StepVerifier.create(changes(null))
+                .thenAwait(OPEN_DELAY)
+                .then(() -> insert("切断前"))
+                .assertNext(event -> lastEventId.set(event.id()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+        insert("切断中");
+        // when
+        Flux<ServerSentEvent<CommentChangeResponse>> body = changes(lastEventId.get());
+        // then
+        StepVerifier.create(body)
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("insert");
+                    assertThat(event.data().getComment().getContent()).isEqualTo("切断中");
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void 再開できないトークンでは再取得を促す() {
+        // when
+        Flux<ServerSentEvent<CommentChangeResponse>> body = changes("invalid");
+        // then
+        StepVerifier.create(body.map(ServerSentEvent::event))
+                .expectNext("reset")
+                .verifyComplete();
+    }
+
+    private Flux<ServerSentEvent<CommentChangeResponse>> changes(String lastEventId) {
+        return webTestClient.get().uri("/api/comment/changes")
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set("Last-Event-ID", lastEventId);
+                    }
+                })
+                .accept(MediaType.TEXT_EVENT_STREAM).exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<CommentChangeResponse>>() {
+                }).getResponseBody()
+                // 接続直後と定期的に送られるコメント行は読み飛ばす
+                .filter(event -> event.event() != null);
+    }
+
+    private CommentResponse insert(String content) {
+        return webTestClient.post().uri("/api/comment")
+                .bodyValue(Map.of("role", "user", "content", content)).exchange()
+                .expectStatus().isCreated()
+                .expectBody(CommentResponse.class).returnResult().getResponseBody();
+    }
+}
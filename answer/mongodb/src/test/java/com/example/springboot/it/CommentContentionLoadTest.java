@@ -0,0 +1,148 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.springboot.Application;
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.repository.CommentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// 1 件のコメントに対する同時更新数を 1 から 64 まで増やし、成功した更新数と再試行回数を比べる。
+// version なしの更新はサーバーが comment.update.retry に従って再試行し、その回数は comment.update.retries から読む。
+// mvn test -Dtest=CommentContentionLoadTest -Dloadtest=true で実行する
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class CommentContentionLoadTest {
+
+    private static final int[] WRITERS = { 1, 2, 4, 8, 16, 32, 64 };
+    private static final long DURATION_MILLIS = 3000;
+    // version を指定した更新が 409 になった場合の再試行。取得し直してから、上限付きの指数バックオフに揺らぎを加えて待つ
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BASE_BACKOFF_MICROS = 500;
+    private static final long MAX_BACKOFF_MICROS = 50_000;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void 同時更新数ごとのスループットと再試行回数() throws Exception {
+        // given
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0", "spring.main.web-application-type=servlet")
+                .run()) {
+            CommentRepository commentRepository = context.getBean(CommentRepository.class);
+            Counter serverRetries = context.getBean(MeterRegistry.class).counter("comment.update.retries");
+            String baseUrl = "http://localhost:%d/api/comment".formatted(
+                    context.getEnvironment().getRequiredProperty("local.server.port", Integer.class));
+            System.out.println("mode, writers, updates/s, retries, abandoned");
+            for (boolean versioned : new boolean[] { false, true }) {
+                for (int writers : WRITERS) {
+                    Comment comment = commentRepository.save(Comment.builder().role("user").content("0").build());
+                    // when
+                    double serverRetriesBefore = serverRetries.count();
+                    Result result = run(baseUrl + "/" + comment.getId(), writers, versioned);
+                    long retries = versioned ? result.retries() : (long) (serverRetries.count() - serverRetriesBefore);
+                    System.out.printf("%s, %d, %.0f, %d, %d%n", versioned ? "versioned" : "unversioned", writers,
+                            result.updates() * 1000.0 / DURATION_MILLIS, retries, result.abandoned());
+                    // then
+                    // 更新が失われていなければ、version は成功した更新の数だけ増えている
+                    assertThat(commentRepository.findById(comment.getId()).orElseThrow().getVersion())
+                            .isEqualTo(result.updates());
+                }
+            }
+            commentRepository.deleteAll();
+        }
+    }
+
+    private Result run(String url, int writers, boolean versioned) throws Exception {
+        LongAdder updates = new LongAdder();
+        LongAdder retries = new LongAdder();
+        LongAdder abandoned = new LongAdder();
+        long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            futures.add(executor.submit(() -> {
+                while (System.currentTimeMillis() < deadline) {
+                    if (!versioned) {
+                        // サーバー側の再試行を使い切った場合だけ 409 になる
+                        int status = put(url, null).statusCode();
+                        assertThat(status).isIn(200, 409);
+                        if (status == 200) {
+                            updates.increment();
+                        } else {
+                            abandoned.increment();
+                        }
+                    } else if (updateWithRetry(url, retries)) {
+                        updates.increment();
+                    } else {
+                        abandoned.increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(DURATION_MILLIS * 10, TimeUnit.MILLISECONDS);
+        }
+        executor.shutdown();
+        return new Result(updates.sum(), retries.sum(), abandoned.sum());
+    }
+
+    // 最新の version を取得し直して同じ変更を適用する
+    private boolean updateWithRetry(String url, LongAdder retries) throws IOException, InterruptedException {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                retries.increment();
+                long backoff = Math.min(MAX_BACKOFF_MICROS, BASE_BACKOFF_MICROS << (attempt - 1));
+                TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+            }
+            HttpResponse<String> current = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            long version = mapper.readTree(current.body()).get("version").asLong();
+            int status = put(url, version).statusCode();
+            if (status == 200) {
+                return true;
+            }
+            assertThat(status).isEqualTo(409);
+        }
+        return false;
+    }
+
+    private HttpResponse<Void> put(String url, Long version) throws IOException, InterruptedException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("role", "user");
+        body.put("content", Thread.currentThread().getName());
+        body.put("version", version);
+        return client.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                .build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private record Result(long updates, long retries, long abandoned) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.springboot.it;
+
+import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.web.response.CommentAcceptedResponse;
+import com.example.springboot.web.response.CommentResponse;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = { "comment.ingest.batch-size=200", "comment.ingest.flush-interval=50ms" })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentIngestTest {
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeEach
+    void setUp() {
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll();
+    }
+
+    @Test
+    void 受け付けたコメントが後から読める() throws InterruptedException {
+        // when
+        ResponseEntity<CommentAcceptedResponse> responseEntity = insertAsync("こんにちは", "MAJORITY");
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(202);
+        String id = responseEntity.getBody().getId();
+        CommentResponse comment = awaitComment(id);
+        assertThat(comment)
+                .extracting(CommentResponse::getRole, CommentResponse::getContent, CommentResponse::getVersion)
+                .containsExactly("user", "こんにちは", 0L);
+        assertThat(comment.getCreatedAt()).isNotNull();
+    }
+
+    @Test
+    void 同期の登録と比較する() throws InterruptedException {
+        // given
+        int rows = 2000;
+        for (int i = 0; i < 200; i++) {
+            insertAsync("warmup" + i, "W1");
+        }
+        // when
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            testRestTemplate.exchange("/api/comment", HttpMethod.POST,
+                    new HttpEntity<>(Map.of("role", "user", "content", "sync" + i), httpHeaders), Void.class);
+        }
+        long sync = System.nanoTime() - start;
+        String last = null;
+        start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            last = insertAsync("async" + i, "W1").getBody().getId();
+        }
+        long async = System.nanoTime() - start;
+        // then
+        System.out.printf("POST latency: sync=%dus, async=%dus%n", sync / rows / 1000, async / rows / 1000);
+        awaitComment(last);
+        assertThat(async).isLessThan(sync);
+    }
+
+    private ResponseEntity<CommentAcceptedResponse> insertAsync(String content, String writeConcern) {
+        return testRestTemplate.exchange("/api/comment/async?writeConcern={writeConcern}", HttpMethod.POST,
+                new HttpEntity<>(Map.of("role", "user", "content", content), httpHeaders),
+                CommentAcceptedResponse.class, writeConcern);
+    }
+
+    private CommentResponse awaitComment(String id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ResponseEntity<CommentResponse> responseEntity = testRestTemplate.exchange("/api/comment/{id}",
+                    HttpMethod.GET, new HttpEntity<>(httpHeaders), CommentResponse.class, id);
+            if (responseEntity.getStatusCode().value() == 200) {
+                return responseEntity.getBody();
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("コメント %s が挿入されませんでした".formatted(id));
+    }
+}
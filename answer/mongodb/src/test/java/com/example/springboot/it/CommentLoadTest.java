@@ -0,0 +1,94 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.springboot.Application;
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.repository.CommentRepository;
+
+// mvn test -Dtest=CommentLoadTest -Dloadtest=true で実行する
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class CommentLoadTest {
+
+    private static final int CONCURRENCY = 1000;
+    private static final int REQUESTS_PER_CLIENT = 20;
+
+    @ParameterizedTest
+    @ValueSource(strings = { "servlet", "reactive" })
+    void 同時接続数1000でのスループットとp99(String webApplicationType) {
+        // given
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0", "spring.main.web-application-type=" + webApplicationType)
+                .run()) {
+            CommentRepository commentRepository = context.getBean(CommentRepository.class);
+            List<Comment> comments = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                comments.add(Comment.builder().role("user").content("こんにちは" + i).build());
+            }
+            commentRepository.saveAll(comments);
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest
+                    .newBuilder(URI.create("http://localhost:%d/api/comment?limit=100".formatted(port)))
+                    .header("Accept", "application/json")
+                    .build();
+            run(client, request, 5);
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            threadMXBean.resetPeakThreadCount();
+            // when
+            long start = System.nanoTime();
+            long[] latencies = run(client, request, REQUESTS_PER_CLIENT);
+            long elapsed = System.nanoTime() - start;
+            // then
+            Arrays.sort(latencies);
+            long p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+            System.out.printf("%s: throughput=%.0f req/s, p99=%dms, peak threads=%d%n", webApplicationType,
+                    latencies.length * 1e9 / elapsed, p99 / 1_000_000, threadMXBean.getPeakThreadCount());
+            assertThat(latencies).doesNotContain(-1L);
+            commentRepository.deleteAll();
+        }
+    }
+
+    // 各クライアントは応答を受け取ってから次のリクエストを送る
+    private static long[] run(HttpClient client, HttpRequest request, int requestsPerClient) {
+        long[] latencies = new long[CONCURRENCY * requestsPerClient];
+        AtomicInteger index = new AtomicInteger();
+        CompletableFuture<?>[] clients = new CompletableFuture<?>[CONCURRENCY];
+        for (int i = 0; i < CONCURRENCY; i++) {
+            clients[i] = send(client, request, requestsPerClient, latencies, index);
+        }
+        CompletableFuture.allOf(clients).join();
+        return latencies;
+    }
+
+    private static CompletableFuture<Void> send(HttpClient client, HttpRequest request, int remaining,
+            long[] latencies, AtomicInteger index) {
+        if (remaining == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenCompose(response -> {
+                    latencies[index.getAndIncrement()] = response.statusCode() == 200 ? System.nanoTime() - start : -1;
+                    return send(client, request, remaining - 1, latencies, index);
+                });
+    }
+}
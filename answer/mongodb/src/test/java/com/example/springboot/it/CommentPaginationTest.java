@@ -0,0 +1,139 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.web.response.CommentIndexResponse;
+import com.example.springboot.web.response.CommentResponse;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentPaginationTest {
+
+    private static final int SMALL = 1_000;
+    private static final int LARGE = 100_000;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeAll
+    void setUp() {
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+        commentRepository.deleteAll();
+    }
+
+    @AfterAll
+    void tearDown() {
+        commentRepository.deleteAll();
+    }
+
+    @Test
+    @Order(1)
+    void 件数によらずレイテンシが一定() {
+        // given
+        seed(SMALL);
+        warmUp();
+        long small = medianNanos("ESTIMATED");
+        seed(LARGE - SMALL);
+        warmUp();
+        // when
+        long large = medianNanos("ESTIMATED");
+        long exact = medianNanos("EXACT");
+        // then
+        System.out.printf("GET /api/comment latency: %d docs=%dus, %d docs=%dus (exact count=%dus)%n",
+                SMALL, small / 1000, LARGE, large / 1000, exact / 1000);
+        assertThat(get(null, 100, "ESTIMATED").getBody().getCount()).isEqualTo(LARGE);
+        assertThat(large).isLessThan(small * 3);
+    }
+
+    @Test
+    @Order(2)
+    void 継続トークンで全件を辿れる() {
+        // given
+        long total = commentRepository.count();
+        // when
+        int actual = 0;
+        String after = null;
+        String lastId = "";
+        do {
+            CommentIndexResponse body = get(after, 1000, "NONE").getBody();
+            assertThat(body.getCount()).isNull();
+            assertThat(body.getComments().get(0).getId()).isGreaterThan(lastId);
+            lastId = body.getComments().get(body.getComments().size() - 1).getId();
+            assertThat(body.getComments()).extracting(CommentResponse::getId).isSorted();
+            actual += body.getComments().size();
+            after = body.getNext();
+        } while (after != null);
+        // then
+        assertThat(actual).isEqualTo(total);
+    }
+
+    private void seed(int count) {
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            comments.add(Comment.builder().role(i % 2 == 0 ? "user" : "assistant").content("こんにちは" + i).build());
+            if (comments.size() == 10_000) {
+                mongoTemplate.insertAll(comments);
+                comments.clear();
+            }
+        }
+        mongoTemplate.insertAll(comments);
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < 20; i++) {
+            get(null, 100, "ESTIMATED");
+        }
+    }
+
+    private long medianNanos(String count) {
+        long[] samples = new long[31];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            get(null, 100, count);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private ResponseEntity<CommentIndexResponse> get(String after, int limit, String count) {
+        String url = after == null ? "/api/comment?limit=%d&count=%s".formatted(limit, count)
+                : "/api/comment?after=%s&limit=%d&count=%s".formatted(after, limit, count);
+        return testRestTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(httpHeaders),
+                CommentIndexResponse.class);
+    }
+}
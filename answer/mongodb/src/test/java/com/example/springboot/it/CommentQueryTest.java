@@ -0,0 +1,126 @@
+package com.example.springboot.it;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.web.response.CommentIndexResponse;
+import com.example.springboot.web.response.CommentResponse;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.*;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentQueryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.parse("2023-08-01T00:00:00");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeAll
+    void setUp() {
+        // 1 分ごとに user と assistant が交互に投稿した 10,000 件
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            comments.add(Comment.builder()
+                    .role(i % 2 == 0 ? "user" : "assistant")
+                    .content("comment" + i)
+                    .createdAt(BASE.plusMinutes(i))
+                    // version を指定すると監査は新規作成とみなさず、createdAt を上書きしない
+                    .version(0L)
+                    .build());
+        }
+        mongoTemplate.insert(comments, Comment.class);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+    }
+
+    @AfterAll
+    void tearDown() {
+        mongoTemplate.remove(new Query(), Comment.class);
+    }
+
+    @Test
+    void 起動時に複合インデックスを作成する() {
+        // when
+        List<IndexInfo> indexes = mongoTemplate.indexOps(Comment.class).getIndexInfo();
+        // then
+        assertThat(indexes)
+                .filteredOn(index -> index.getName().equals("role_createdAt"))
+                .singleElement()
+                .satisfies(index -> assertThat(index.getIndexFields())
+                        .extracting(IndexField::getKey)
+                        .containsExactly("role", "createdAt"));
+    }
+
+    @Test
+    void roleと期間で取得する() {
+        // when
+        ResponseEntity<CommentIndexResponse> responseEntity = testRestTemplate.exchange(
+                "/api/comment?role=user&from=2023-08-01T01:00:00&to=2023-08-01T02:00:00", HttpMethod.GET,
+                new HttpEntity<>(httpHeaders), CommentIndexResponse.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        List<CommentResponse> comments = responseEntity.getBody().getComments();
+        assertThat(comments).hasSize(30)
+                .allMatch(comment -> comment.getRole().equals("user"));
+        assertThat(comments.get(0).getCreatedAt()).isEqualTo("2023-08-01T01:00:00");
+        assertThat(comments.get(29).getCreatedAt()).isEqualTo("2023-08-01T01:58:00");
+        assertThat(comments).extracting(CommentResponse::getCreatedAt).isSorted();
+    }
+
+    @Test
+    void limitで件数を制限する() {
+        // when
+        ResponseEntity<CommentIndexResponse> responseEntity = testRestTemplate.exchange(
+                "/api/comment?role=assistant&limit=5", HttpMethod.GET, new HttpEntity<>(httpHeaders),
+                CommentIndexResponse.class);
+        // then
+        assertThat(responseEntity.getBody().getComments())
+                .extracting(CommentResponse::getContent)
+                .containsExactly("comment1", "comment3", "comment5", "comment7", "comment9");
+    }
+
+    @Test
+    void 勝者プランがインデックススキャンになる() {
+        // given
+        Document filter = new Document("role", "user")
+                .append("createdAt", new Document("$gte", toDate(BASE.plusHours(1)))
+                        .append("$lt", toDate(BASE.plusHours(2))));
+        // when
+        Document explain = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Comment.class))
+                .find(filter)
+                .sort(new Document("createdAt", 1))
+                .limit(100)
+                .explain();
+        // then
+        String winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertThat(winningPlan)
+                .contains("\"stage\": \"IXSCAN\"", "\"indexName\": \"role_createdAt\"")
+                .doesNotContain("\"stage\": \"COLLSCAN\"", "\"stage\": \"SORT\"");
+    }
+
+    private static Date toDate(LocalDateTime localDateTime) {
+        return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.springboot.it;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.web.response.CommentIndexResponse;
+import com.example.springboot.web.response.CommentResponse;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.*;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "comment.recent.capacity=3")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentRecentTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeEach
+    void setUp() {
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.remove(new Query(), Comment.class);
+    }
+
+    @Test
+    void 作成と更新と削除をメモリから返す() {
+        // given
+        create("こんにちは");
+        String second = create("なにかお手伝いできますか").getId();
+        String third = create("こんばんわ").getId();
+        String fourth = create("おやすみ").getId();
+        testRestTemplate.exchange("/api/comment/{id}", HttpMethod.PATCH,
+                new HttpEntity<>(Map.of("content", "こんばんは"), httpHeaders), CommentResponse.class, third);
+        testRestTemplate.exchange("/api/comment/{id}", HttpMethod.DELETE, new HttpEntity<>(httpHeaders), Void.class,
+                second);
+        // Mongo から消しても返せる
+        mongoTemplate.remove(new Query(), Comment.class);
+        // when
+        ResponseEntity<CommentIndexResponse> responseEntity = testRestTemplate.exchange("/api/comment/recent",
+                HttpMethod.GET, new HttpEntity<>(httpHeaders), CommentIndexResponse.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        assertThat(responseEntity.getBody().getComments())
+                .extracting(CommentResponse::getId, CommentResponse::getContent, CommentResponse::getVersion)
+                .containsExactly(
+                        tuple(fourth, "おやすみ", 0L),
+                        tuple(third, "こんばんは", 1L));
+    }
+
+    @Test
+    void 件数を指定する() {
+        // given
+        create("こんにちは");
+        String latest = create("こんばんは").getId();
+        // when
+        ResponseEntity<CommentIndexResponse> responseEntity = testRestTemplate.exchange("/api/comment/recent?limit=1",
+                HttpMethod.GET, new HttpEntity<>(httpHeaders), CommentIndexResponse.class);
+        // then
+        assertThat(responseEntity.getBody().getComments()).extracting(CommentResponse::getId)
+                .containsExactly(latest);
+    }
+
+    private CommentResponse create(String content) {
+        return testRestTemplate.exchange("/api/comment", HttpMethod.POST,
+                new HttpEntity<>(Map.of("role", "user", "content", content), httpHeaders), CommentResponse.class)
+                .getBody();
+    }
+}
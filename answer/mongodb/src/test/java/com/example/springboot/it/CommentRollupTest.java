@@ -0,0 +1,111 @@
+package com.example.springboot.it;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+import com.example.springboot.web.response.CommentResponse;
+import com.example.springboot.web.response.CommentRollupIndexResponse;
+import com.example.springboot.web.response.CommentRollupResponse;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.*;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentRollupTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeEach
+    void setUp() {
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.remove(new Query(), Comment.class);
+        mongoTemplate.remove(new Query(), CommentRollup.class);
+    }
+
+    @Test
+    void 作成と削除でロールアップを増減する() {
+        // given
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(create("user", "こんにちは" + i).getId());
+        }
+        create("assistant", "なにかお手伝いできますか");
+        bulkInsert(List.of(Map.of("role", "user", "content", "おはよう")));
+        // when
+        testRestTemplate.exchange("/api/comment/{id}", HttpMethod.DELETE, new HttpEntity<>(httpHeaders), Void.class,
+                ids.get(0));
+        // then
+        assertThat(total("user", "MINUTE")).isEqualTo(3);
+        assertThat(total("user", "HOUR")).isEqualTo(3);
+        assertThat(total("assistant", "HOUR")).isEqualTo(1);
+    }
+
+    @Test
+    void 再集計でずれたロールアップを戻す() {
+        // given
+        for (int i = 0; i < 5; i++) {
+            create(i % 2 == 0 ? "user" : "assistant", "こんにちは" + i);
+        }
+        mongoTemplate.updateMulti(new Query(), new Update().inc("count", 100), CommentRollup.class);
+        // 対応するコメントがないバケット
+        mongoTemplate.insert(CommentRollup.builder().id("system|HOUR|2020-01-01T00:00").role("system")
+                .granularity(Granularity.HOUR).bucket(LocalDateTime.parse("2020-01-01T00:00:00")).count(5).build());
+        // when
+        ResponseEntity<Void> responseEntity = testRestTemplate.exchange("/api/comment/rollups/rebuild",
+                HttpMethod.POST, new HttpEntity<>(httpHeaders), Void.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(204);
+        assertThat(total("user", "MINUTE")).isEqualTo(3);
+        assertThat(total("user", "HOUR")).isEqualTo(3);
+        assertThat(total("assistant", "HOUR")).isEqualTo(2);
+        assertThat(total("system", "HOUR")).isZero();
+        // 再集計後も差分更新を続けられる
+        create("user", "こんばんは");
+        assertThat(total("user", "HOUR")).isEqualTo(4);
+    }
+
+    private long total(String role, String granularity) {
+        ResponseEntity<CommentRollupIndexResponse> responseEntity = testRestTemplate.exchange(
+                "/api/comment/rollups?role={role}&granularity={granularity}", HttpMethod.GET,
+                new HttpEntity<>(httpHeaders), CommentRollupIndexResponse.class, role, granularity);
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        return responseEntity.getBody().getRollups().stream().mapToLong(CommentRollupResponse::getCount).sum();
+    }
+
+    private CommentResponse create(String role, String content) {
+        return testRestTemplate.exchange("/api/comment", HttpMethod.POST,
+                new HttpEntity<>(Map.of("role", role, "content", content), httpHeaders), CommentResponse.class)
+                .getBody();
+    }
+
+    private void bulkInsert(List<Map<String, String>> comments) {
+        testRestTemplate.exchange("/api/comment/bulk", HttpMethod.POST,
+                new HttpEntity<>(Map.of("comments", comments), httpHeaders), Void.class);
+    }
+}
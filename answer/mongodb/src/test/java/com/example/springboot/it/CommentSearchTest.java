@@ -0,0 +1,164 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.web.response.CommentSearchItemResponse;
+import com.example.springboot.web.response.CommentSearchResponse;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class CommentSearchTest {
+
+    private static final int SMALL = 10_000;
+    private static final int LARGE = 100_000;
+    private static final int VOCABULARY = 5_000;
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+    private final Random random = new Random(0);
+
+    @BeforeAll
+    void setUp() {
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+        commentRepository.deleteAll();
+        commentRepository.saveAll(List.of(
+                Comment.builder().role("user").content("mongo の テキスト インデックス について 教えて").build(),
+                Comment.builder().role("assistant").content("テキスト インデックス は 単語 ごと に 作られます").build(),
+                Comment.builder().role("user").content("インデックス インデックス インデックス").build()));
+    }
+
+    @AfterAll
+    void tearDown() {
+        commentRepository.deleteAll();
+    }
+
+    @Test
+    @Order(1)
+    void 関連度の高い順に必要な項目だけを返す() {
+        // when
+        ResponseEntity<String> raw = get("テキスト インデックス", 10, String.class);
+        List<CommentSearchItemResponse> hits = get("テキスト インデックス", 10, CommentSearchResponse.class)
+                .getBody().getComments();
+        // then
+        assertThat(raw.getStatusCode().value()).isEqualTo(200);
+        assertThat(raw.getBody()).doesNotContain("updatedAt", "version");
+        assertThat(hits).hasSize(3);
+        assertThat(hits).extracting(CommentSearchItemResponse::getScore)
+                .isSortedAccordingTo((a, b) -> Float.compare(b, a));
+        assertThat(hits).allSatisfy(hit -> {
+            assertThat(hit.getId()).isNotNull();
+            assertThat(hit.getRole()).isNotNull();
+            assertThat(hit.getCreatedAt()).isNotNull();
+        });
+    }
+
+    @Test
+    @Order(2)
+    void 一致しない語() {
+        // when
+        ResponseEntity<CommentSearchResponse> responseEntity = get("存在しない語", 10, CommentSearchResponse.class);
+        // then
+        assertThat(responseEntity.getBody().getComments()).isEmpty();
+    }
+
+    @Test
+    @Order(3)
+    void 件数が増えてもレイテンシが線形に伸びない() {
+        // given
+        seed(SMALL);
+        warmUp();
+        long small = medianNanos();
+        seed(LARGE - SMALL);
+        warmUp();
+        // when
+        long large = medianNanos();
+        // then
+        System.out.printf("GET /api/comment/search latency: %d docs=%dus, %d docs=%dus%n",
+                SMALL, small / 1000, LARGE, large / 1000);
+        assertThat(get("word42", 20, CommentSearchResponse.class).getBody().getComments()).hasSize(20);
+        assertThat(large).isLessThan(small * (LARGE / SMALL) / 2);
+    }
+
+    // 出現頻度が Zipf 分布に従う語彙から 8〜24 語の文を作る
+    private void seed(int count) {
+        double[] cumulative = new double[VOCABULARY];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder content = new StringBuilder();
+            int words = 8 + random.nextInt(17);
+            for (int w = 0; w < words; w++) {
+                int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                content.append(" word").append(index < 0 ? -index - 1 : index);
+            }
+            comments.add(Comment.builder().role(i % 2 == 0 ? "user" : "assistant").content(content.toString().trim())
+                    .build());
+            if (comments.size() == 10_000) {
+                mongoTemplate.insertAll(comments);
+                comments.clear();
+            }
+        }
+        mongoTemplate.insertAll(comments);
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < 20; i++) {
+            get("word42", 20, CommentSearchResponse.class);
+        }
+    }
+
+    private long medianNanos() {
+        long[] samples = new long[31];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            get("word%d".formatted(3000 + i), 20, CommentSearchResponse.class);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private <T> ResponseEntity<T> get(String q, int limit, Class<T> responseType) {
+        return testRestTemplate.exchange("/api/comment/search?q={q}&limit={limit}", HttpMethod.GET,
+                new HttpEntity<>(httpHeaders), responseType, q, limit);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.springboot.web.response.CommentResponse;
+
+import reactor.test.StepVerifier;
+
+// CommentApiTest のテストをリアクティブモードで実行する
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+class ReactiveCommentApiTest extends CommentApiTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void stream() {
+        // when
+        var body = webTestClient.get().uri("/api/comment")
+                .accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .returnResult(CommentResponse.class).getResponseBody();
+        // then
+        StepVerifier.create(body.map(CommentResponse::getId), 1)
+                .expectNext("1")
+                .thenRequest(2)
+                .expectNext("2", "3")
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAsServerSentEvents() {
+        // when
+        var body = webTestClient.get().uri("/api/comment")
+                .accept(MediaType.TEXT_EVENT_STREAM).exchange()
+                .expectStatus().isOk()
+                .returnResult(CommentResponse.class).getResponseBody();
+        // then
+        assertThat(body.map(CommentResponse::getContent).collectList().block())
+                .containsExactly("こんにちは", "なにかお手伝いできますか", "こんばんわ");
+    }
+}
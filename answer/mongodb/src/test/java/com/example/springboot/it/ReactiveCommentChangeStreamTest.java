@@ -0,0 +1,9 @@
+package com.example.springboot.it;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// CommentChangeStreamTest のテストをリアクティブモードで実行する
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+class ReactiveCommentChangeStreamTest extends CommentChangeStreamTest {
+}
@@ -0,0 +1,10 @@
+package com.example.springboot.it;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// CommentIngestTest のテストをリアクティブモードで実行する
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = { "spring.main.web-application-type=reactive", "comment.ingest.batch-size=200",
+                "comment.ingest.flush-interval=50ms" })
+class ReactiveCommentIngestTest extends CommentIngestTest {
+}
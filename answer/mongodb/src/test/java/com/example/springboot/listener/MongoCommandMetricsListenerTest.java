@@ -0,0 +1,98 @@
+package com.example.springboot.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MongoCommandMetricsListenerTest {
+
+    private static final ConnectionDescription CONNECTION = new ConnectionDescription(
+            new ServerId(new ClusterId(), new ServerAddress()));
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoCommandMetricsListener mongoCommandMetricsListener;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        mongoCommandMetricsListener = new MongoCommandMetricsListener(meterRegistry);
+    }
+
+    @Test
+    void RawBsonDocumentは毎回送受信サイズを記録する() {
+        // given
+        RawBsonDocument command = new RawBsonDocument(new BsonDocument("find", new BsonString("comment")),
+                new BsonDocumentCodec());
+        RawBsonDocument response = new RawBsonDocument(new BsonDocument("ok", new BsonInt32(1)),
+                new BsonDocumentCodec());
+        // when
+        mongoCommandMetricsListener.commandStarted(new CommandStartedEvent(1, CONNECTION, "sample", "find", command));
+        mongoCommandMetricsListener.commandSucceeded(new CommandSucceededEvent(1, CONNECTION, "find", response, 10));
+        mongoCommandMetricsListener.commandStarted(new CommandStartedEvent(2, CONNECTION, "sample", "find", command));
+        // then
+        DistributionSummary request = meterRegistry.get("mongodb.driver.commands.request.size")
+                .tag("command", "find").summary();
+        DistributionSummary reply = meterRegistry.get("mongodb.driver.commands.response.size")
+                .tag("command", "find").summary();
+        assertThat(request.count()).isEqualTo(2);
+        assertThat(request.totalAmount()).isEqualTo(2 * command.getByteBuffer().remaining());
+        assertThat(reply.count()).isEqualTo(1);
+    }
+
+    @Test
+    void RawBsonDocument以外はコマンドごとに間引いて記録する() {
+        // given
+        BsonDocument command = new BsonDocument("find", new BsonString("comment"));
+        int events = MongoCommandMetricsListener.SAMPLE_INTERVAL * 2 + 1;
+        // when
+        for (int i = 0; i < events; i++) {
+            mongoCommandMetricsListener.commandStarted(new CommandStartedEvent(i, CONNECTION, "sample", "find", command));
+            mongoCommandMetricsListener.commandStarted(new CommandStartedEvent(i, CONNECTION, "sample", "count", command));
+        }
+        // then
+        DistributionSummary find = meterRegistry.get("mongodb.driver.commands.request.size")
+                .tag("command", "find").summary();
+        DistributionSummary count = meterRegistry.get("mongodb.driver.commands.request.size")
+                .tag("command", "count").summary();
+        assertThat(find.count()).isEqualTo(3);
+        assertThat(find.totalAmount()).isEqualTo(3 * new RawBsonDocument(command, new BsonDocumentCodec())
+                .getByteBuffer().remaining());
+        assertThat(count.count()).isEqualTo(3);
+    }
+
+    @Test
+    void 応答がnullのときは記録しない() {
+        // when
+        mongoCommandMetricsListener.commandSucceeded(new CommandSucceededEvent(1, CONNECTION, "find", null, 10));
+        // then
+        assertThat(meterRegistry.get("mongodb.driver.commands.response.size")
+                .tag("command", "find").summary().count()).isZero();
+    }
+
+    @Test
+    void RawBsonDocumentはエンコードせずに数える() {
+        // given
+        BsonDocument document = new BsonDocument("insert", new BsonString("comment"));
+        RawBsonDocument raw = new RawBsonDocument(document, new BsonDocumentCodec());
+        // then
+        assertThat(MongoCommandMetricsListener.sizeOf(raw)).isEqualTo(raw.getByteBuffer().remaining());
+        assertThat(MongoCommandMetricsListener.sizeOf(document)).isEqualTo(raw.getByteBuffer().remaining());
+        assertThat(MongoCommandMetricsListener.sizeOf(null)).isZero();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.springboot.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent.Reason;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MongoConnectionPoolMetricsListenerTest {
+
+    private static final ServerId SERVER = new ServerId(new ClusterId(), new ServerAddress());
+
+    private SimpleMeterRegistry meterRegistry;
+    private MongoConnectionPoolMetricsListener mongoConnectionPoolMetricsListener;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        mongoConnectionPoolMetricsListener = new MongoConnectionPoolMetricsListener(meterRegistry);
+        mongoConnectionPoolMetricsListener.connectionPoolCreated(new ConnectionPoolCreatedEvent(SERVER,
+                ConnectionPoolSettings.builder().maxSize(4).build()));
+    }
+
+    @Test
+    void 貸出待ちと使用率を記録する() {
+        // given
+        ConnectionId connection = new ConnectionId(SERVER);
+        // when
+        mongoConnectionPoolMetricsListener.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER));
+        mongoConnectionPoolMetricsListener.connectionCheckedOut(new ConnectionCheckedOutEvent(connection));
+        mongoConnectionPoolMetricsListener.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER));
+        mongoConnectionPoolMetricsListener.connectionCheckedOut(new ConnectionCheckedOutEvent(connection));
+        // then
+        Timer checkout = meterRegistry.get("mongodb.driver.pool.checkout").tag("status", "SUCCESS").timer();
+        assertThat(checkout.count()).isEqualTo(2);
+        assertThat(meterRegistry.get("mongodb.driver.pool.saturation")
+                .tag("server.address", SERVER.getAddress().toString()).gauge().value()).isEqualTo(0.5);
+
+        mongoConnectionPoolMetricsListener.connectionCheckedIn(new ConnectionCheckedInEvent(connection));
+        assertThat(meterRegistry.get("mongodb.driver.pool.saturation").gauge().value()).isEqualTo(0.25);
+    }
+
+    @Test
+    void 貸出の失敗を記録する() {
+        // when
+        mongoConnectionPoolMetricsListener.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(SERVER));
+        mongoConnectionPoolMetricsListener.connectionCheckOutFailed(
+                new ConnectionCheckOutFailedEvent(SERVER, Reason.TIMEOUT));
+        // then
+        assertThat(meterRegistry.get("mongodb.driver.pool.checkout").tag("status", "FAILED").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("mongodb.driver.pool.saturation").gauge().value()).isZero();
+    }
+
+    @Test
+    void プールを閉じるとメーターを削除する() {
+        // when
+        mongoConnectionPoolMetricsListener.connectionPoolClosed(new ConnectionPoolClosedEvent(SERVER));
+        // then
+        assertThat(meterRegistry.find("mongodb.driver.pool.checkout").timers()).isEmpty();
+        assertThat(meterRegistry.find("mongodb.driver.pool.saturation").gauges()).isEmpty();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.springboot.persistence.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.web.response.CommentResponse;
+
+// MappingMongoConverter が書いたドキュメントを読めること
+class CommentCodecTest {
+
+    private final Comment comment = Comment.builder().id("64c8a1000000000000000001").role("user")
+            .content("こんにちは")
+            .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.123"))
+            .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.456"))
+            .version(3L).build();
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Nested
+    class decode {
+        @Test
+        void CommentResponseとして読む() {
+            // given
+            Document document = new Document();
+            converter.write(comment, document);
+            // when
+            CommentResponse actual = decode(new CommentResponseCodec(), document.toBsonDocument());
+            // then
+            assertThat(actual).usingRecursiveComparison().isEqualTo(comment);
+        }
+
+        @Test
+        void 未知の項目とnullは読み飛ばす() {
+            // given
+            BsonDocument document = BsonDocument.parse("""
+                    {"_id": "1", "role": null, "content": "こんにちは", "version": 0, "score": 1.5}
+                    """);
+            // when
+            CommentResponse actual = decode(new CommentResponseCodec(), document);
+            // then
+            assertThat(actual).usingRecursiveComparison().isEqualTo(
+                    CommentResponse.builder().id("1").content("こんにちは").version(0L).build());
+        }
+    }
+
+    @Test
+    void ObjectIdとして解釈できるIDだけを変換する() {
+        assertThat(CommentCodecs.id("64c8a1000000000000000001")).isEqualTo(new ObjectId("64c8a1000000000000000001"));
+        assertThat(CommentCodecs.id("1")).isEqualTo("1");
+    }
+
+    private static <T> T decode(Codec<T> codec, BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+}
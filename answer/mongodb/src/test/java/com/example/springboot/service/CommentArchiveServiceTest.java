@@ -0,0 +1,203 @@
+package com.example.springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest
+class CommentArchiveServiceTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.parse("2023-01-01T00:00:00");
+
+    @InjectMocks
+    private CommentArchiveService commentArchiveService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void 古いコメントをバッチごとに移す() {
+        // given
+        ReflectionTestUtils.setField(commentArchiveService, "batchSize", 2);
+        when(mongoTemplate.collectionExists("comment_archive")).thenReturn(true);
+        when(mongoTemplate.getCollectionName(Comment.class)).thenReturn("comment");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("comment")))
+                .thenReturn(List.of(document("1", 0L), document("2", 3L)), List.of(document("3", 0L)), List.of());
+        BulkOperations copy = bulkOperations("comment_archive", 0);
+        BulkOperations remove = bulkOperations("comment", 2, 1);
+        // when
+        long moved = commentArchiveService.archive(CUTOFF);
+        // then
+        assertThat(moved).isEqualTo(3);
+        verify(copy, times(3)).replaceOne(any(Query.class), any(Document.class), any(FindAndReplaceOptions.class));
+        ArgumentCaptor<List<Query>> removed = ArgumentCaptor.forClass(List.class);
+        verify(remove, times(2)).remove(removed.capture());
+        assertThat(removed.getAllValues().get(0)).extracting(Query::getQueryObject)
+                .containsExactly(new Document("_id", "1").append("version", 0L),
+                        new Document("_id", "2").append("version", 3L));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(3)).find(query.capture(), eq(Document.class), eq("comment"));
+        assertThat(query.getValue().getQueryObject())
+                .containsEntry("createdAt", new Document("$lt", CUTOFF));
+        assertThat(query.getValue().getLimit()).isEqualTo(2);
+        assertThat(meterRegistry.get("comment.archive.moved").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("comment.archive.batch").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void 削除できなかった場合は次回に回す() {
+        // given
+        when(mongoTemplate.collectionExists("comment_archive")).thenReturn(true);
+        when(mongoTemplate.getCollectionName(Comment.class)).thenReturn("comment");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("comment")))
+                .thenReturn(List.of(document("1", 0L)));
+        bulkOperations("comment_archive", 0);
+        bulkOperations("comment", 0);
+        // when
+        long moved = commentArchiveService.archive(CUTOFF);
+        // then
+        assertThat(moved).isZero();
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(Document.class), eq("comment"));
+    }
+
+    @Test
+    void 書き込みが競合したらバッチをやり直す() {
+        // given
+        when(mongoTemplate.collectionExists("comment_archive")).thenReturn(true);
+        when(mongoTemplate.getCollectionName(Comment.class)).thenReturn("comment");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("comment")))
+                .thenReturn(List.of(document("1", 0L), document("2", 0L)), List.of(document("2", 0L)), List.of());
+        BulkOperations copy = bulkOperations("comment_archive", 0);
+        // 1 回目は 1 の読み取り後に DELETE が入り、削除が書き込み競合になる
+        BulkOperations remove = bulkOperations("comment", 1);
+        when(remove.execute()).thenThrow(writeConflict())
+                .thenReturn(BulkWriteResult.acknowledged(0, 0, 1, 0, List.of(), List.of()));
+        // when
+        long moved = commentArchiveService.archive(CUTOFF);
+        // then
+        assertThat(moved).isEqualTo(1);
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(copy, times(3)).replaceOne(any(Query.class), any(Document.class), any(FindAndReplaceOptions.class));
+    }
+
+    @Test
+    void 競合が続いたら次回に回す() {
+        // given
+        when(mongoTemplate.collectionExists("comment_archive")).thenReturn(true);
+        when(mongoTemplate.getCollectionName(Comment.class)).thenReturn("comment");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("comment")))
+                .thenReturn(List.of(document("1", 0L)));
+        bulkOperations("comment_archive", 0);
+        when(bulkOperations("comment", 0).execute()).thenThrow(writeConflict());
+        // when
+        long moved = commentArchiveService.archive(CUTOFF);
+        // then
+        assertThat(moved).isZero();
+        verify(transactionTemplate, times(3)).execute(any());
+    }
+
+    @Test
+    void 競合以外のエラーはやり直さない() {
+        // given
+        when(mongoTemplate.collectionExists("comment_archive")).thenReturn(true);
+        when(mongoTemplate.getCollectionName(Comment.class)).thenReturn("comment");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("comment")))
+                .thenThrow(new DataAccessResourceFailureException("timeout"));
+        // when
+        // then
+        assertThrows(DataAccessResourceFailureException.class, () -> commentArchiveService.archive(CUTOFF));
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    void アーカイブのコレクションを圧縮して作成する() {
+        // given
+        MongoDatabase database = mock(MongoDatabase.class);
+        when(mongoTemplate.collectionExists("comment_archive")).thenReturn(false);
+        when(mongoTemplate.getDb()).thenReturn(database);
+        when(mongoTemplate.getCollectionName(Comment.class)).thenReturn("comment");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("comment"))).thenReturn(List.of());
+        // when
+        commentArchiveService.archive(CUTOFF);
+        // then
+        ArgumentCaptor<CreateCollectionOptions> options = ArgumentCaptor.forClass(CreateCollectionOptions.class);
+        verify(database).createCollection(eq("comment_archive"), options.capture());
+        assertThat(options.getValue().getStorageEngineOptions().toBsonDocument().toJson())
+                .contains("block_compressor=zstd");
+        verify(mongoTemplate, never()).bulkOps(any(BulkMode.class), anyString());
+    }
+
+    private BulkOperations bulkOperations(String collectionName, Integer... deleted) {
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, collectionName)).thenReturn(bulkOperations);
+        when(bulkOperations.remove(anyList())).thenReturn(bulkOperations);
+        BulkWriteResult[] results = Arrays.stream(deleted)
+                .map(count -> BulkWriteResult.acknowledged(0, 0, count, 0, List.of(), List.of()))
+                .toArray(BulkWriteResult[]::new);
+        when(bulkOperations.execute()).thenReturn(results[0], Arrays.copyOfRange(results, 1, results.length));
+        return bulkOperations;
+    }
+
+    private static UncategorizedMongoDbException writeConflict() {
+        MongoException writeConflict = new MongoException(112, "WriteConflict");
+        writeConflict.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        return new UncategorizedMongoDbException("WriteConflict", writeConflict);
+    }
+
+    private static Document document(String id, Long version) {
+        return new Document("_id", id).append("role", "user").append("version", version);
+    }
+}
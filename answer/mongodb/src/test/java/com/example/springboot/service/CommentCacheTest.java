@@ -0,0 +1,90 @@
+package com.example.springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.springboot.persistence.entity.Comment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CommentCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CommentCache commentCache = new CommentCache(100, Duration.ofMinutes(1), meterRegistry);
+
+    @Test
+    void 古いversionでは上書きしない() {
+        // given
+        Comment updated = comment(2L);
+        commentCache.putIfNewer(updated);
+        // when
+        commentCache.putIfNewer(comment(1L));
+        // then
+        assertThat(commentCache.get("1").comment()).isSameAs(updated);
+    }
+
+    @Test
+    void 新しいversionで置き換える() {
+        // given
+        commentCache.putIfNewer(comment(1L));
+        Comment updated = comment(2L);
+        // when
+        commentCache.putIfNewer(updated);
+        // then
+        assertThat(commentCache.get("1").comment()).isSameAs(updated);
+    }
+
+    @Test
+    void 削除前に読み込んだ値で上書きしない() {
+        // given
+        commentCache.putDeleted("1");
+        // when
+        commentCache.putIfNewer(comment(5L));
+        // then
+        assertThat(commentCache.get("1")).isNotNull();
+        assertThat(commentCache.get("1").comment()).isNull();
+    }
+
+    @Test
+    void 新規作成は削除済みを置き換える() {
+        // given
+        commentCache.putDeleted("1");
+        Comment created = comment(0L);
+        // when
+        commentCache.put(created);
+        // then
+        assertThat(commentCache.get("1").comment()).isSameAs(created);
+    }
+
+    @Test
+    void ヒット数とミス数を記録する() {
+        // given
+        commentCache.putIfNewer(comment(0L));
+        // when
+        commentCache.get("1");
+        commentCache.get("1");
+        commentCache.get("2");
+        // then
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "comments", "result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "comments", "result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void clear() {
+        // given
+        commentCache.putIfNewer(comment(0L));
+        // when
+        commentCache.clear();
+        // then
+        assertThat(commentCache.get("1")).isNull();
+    }
+
+    private static Comment comment(Long version) {
+        return Comment.builder().id("1").role("user").content("v" + version).version(version).build();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.springboot.exception.exceptions.ServiceUnavailableException;
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.service.CommentService.BulkItemResult;
+import com.example.springboot.service.CommentService.WriteConcernMode;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest
+class CommentIngestServiceTest {
+
+    @InjectMocks
+    private CommentIngestService commentIngestService;
+
+    @Mock
+    private CommentService commentService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        commentIngestService.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void 件数に達したらまとめて挿入する() throws Exception {
+        // given
+        start(10, 3, Duration.ofMinutes(1));
+        when(commentService.bulkInsert(anyList(), eq(WriteConcernMode.W1))).thenReturn(List.of());
+        // when
+        for (int i = 0; i < 3; i++) {
+            commentIngestService.submit(comment("こんにちは" + i), WriteConcernMode.W1);
+        }
+        // then
+        ArgumentCaptor<List<Comment>> comments = ArgumentCaptor.forClass(List.class);
+        verify(commentService, timeout(5000)).bulkInsert(comments.capture(), eq(WriteConcernMode.W1));
+        assertThat(comments.getValue()).extracting(Comment::getContent)
+                .containsExactly("こんにちは0", "こんにちは1", "こんにちは2");
+        assertThat(comments.getValue()).allSatisfy(comment -> assertThat(comment.getId()).hasSize(24));
+        commentIngestService.stop();
+        assertThat(meterRegistry.get("comment.ingest.flush").tag("writeConcern", "W1").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void 書き込み保証ごとに分けて挿入する() throws Exception {
+        // given
+        start(10, 100, Duration.ofMillis(50));
+        when(commentService.bulkInsert(anyList(), eq(WriteConcernMode.MAJORITY))).thenReturn(List.of());
+        when(commentService.bulkInsert(anyList(), eq(WriteConcernMode.UNACKNOWLEDGED))).thenReturn(List.of());
+        // when
+        Comment majority = comment("こんにちは");
+        Comment unacknowledged = comment("こんばんは");
+        commentIngestService.submit(majority, WriteConcernMode.MAJORITY);
+        commentIngestService.submit(unacknowledged, WriteConcernMode.UNACKNOWLEDGED);
+        // then
+        verify(commentService, timeout(5000)).bulkInsert(List.of(majority), WriteConcernMode.MAJORITY);
+        verify(commentService, timeout(5000)).bulkInsert(List.of(unacknowledged), WriteConcernMode.UNACKNOWLEDGED);
+    }
+
+    @Test
+    void キューが一杯なら断る() throws Exception {
+        // given
+        start(1, 1, Duration.ofMillis(10));
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(commentService.bulkInsert(anyList(), eq(WriteConcernMode.W1))).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return List.of();
+        });
+        commentIngestService.submit(comment("1"), WriteConcernMode.W1);
+        flushing.await();
+        commentIngestService.submit(comment("2"), WriteConcernMode.W1);
+        // when, then
+        assertThrows(ServiceUnavailableException.class,
+                () -> commentIngestService.submit(comment("3"), WriteConcernMode.W1));
+        assertThat(meterRegistry.get("comment.ingest.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("comment.ingest.queue.size").gauge().value()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void 挿入に失敗した件数を数える() throws Exception {
+        // given
+        start(10, 2, Duration.ofMinutes(1));
+        when(commentService.bulkInsert(anyList(), eq(WriteConcernMode.W1)))
+                .thenReturn(List.of(new BulkItemResult(0, "1", null), new BulkItemResult(1, "2", "E11000")));
+        // when
+        commentIngestService.submit(comment("1"), WriteConcernMode.W1);
+        commentIngestService.submit(comment("2"), WriteConcernMode.W1);
+        // then
+        verify(commentService, timeout(5000)).bulkInsert(anyList(), eq(WriteConcernMode.W1));
+        commentIngestService.stop();
+        assertThat(meterRegistry.get("comment.ingest.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void 停止時に残りを挿入する() throws Exception {
+        // given
+        start(10, 100, Duration.ofMinutes(1));
+        Comment comment = comment("こんにちは");
+        commentIngestService.submit(comment, WriteConcernMode.W1);
+        // when
+        commentIngestService.stop();
+        // then
+        verify(commentService).bulkInsert(List.of(comment), WriteConcernMode.W1);
+        assertThrows(ServiceUnavailableException.class,
+                () -> commentIngestService.submit(comment("こんばんは"), WriteConcernMode.W1));
+    }
+
+    @Test
+    void 応答を待たない書き込みは失敗とは別に数える() throws Exception {
+        // given
+        start(10, 2, Duration.ofMinutes(1));
+        when(commentService.bulkInsert(anyList(), eq(WriteConcernMode.UNACKNOWLEDGED)))
+                .thenReturn(List.of(new BulkItemResult(0, "1", null, false), new BulkItemResult(1, "2", null, false)));
+        // when
+        commentIngestService.submit(comment("1"), WriteConcernMode.UNACKNOWLEDGED);
+        commentIngestService.submit(comment("2"), WriteConcernMode.UNACKNOWLEDGED);
+        // then
+        verify(commentService, timeout(5000)).bulkInsert(anyList(), eq(WriteConcernMode.UNACKNOWLEDGED));
+        commentIngestService.stop();
+        assertThat(meterRegistry.get("comment.ingest.unacknowledged").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("comment.ingest.failed").counter().count()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void 停止と同時に受け付けたコメントも挿入する() throws Exception {
+        // given
+        start(100000, 50, Duration.ofMillis(10));
+        when(commentService.bulkInsert(anyList(), eq(WriteConcernMode.W1))).thenReturn(List.of());
+        Queue<String> accepted = new ConcurrentLinkedQueue<>();
+        CountDownLatch submitting = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                submitting.countDown();
+                try {
+                    while (true) {
+                        accepted.add(commentIngestService.submit(comment("こんにちは"), WriteConcernMode.W1));
+                    }
+                } catch (ServiceUnavailableException e) {
+                    // 停止後は断られる
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        submitting.await();
+        // when
+        commentIngestService.stop();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // then
+        ArgumentCaptor<List<Comment>> comments = ArgumentCaptor.forClass(List.class);
+        verify(commentService, atLeastOnce()).bulkInsert(comments.capture(), eq(WriteConcernMode.W1));
+        assertThat(comments.getAllValues().stream().flatMap(List::stream).map(Comment::getId))
+                .containsExactlyInAnyOrderElementsOf(accepted);
+    }
+
+    private void start(int queueCapacity, int batchSize, Duration flushInterval) {
+        ReflectionTestUtils.setField(commentIngestService, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(commentIngestService, "batchSize", batchSize);
+        ReflectionTestUtils.setField(commentIngestService, "flushInterval", flushInterval);
+        commentIngestService.start();
+    }
+
+    private static Comment comment(String content) {
+        return Comment.builder().role("user").content(content).build();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.web.response.CommentResponse;
+
+class CommentRecentBufferTest {
+
+    private final CommentRecentBuffer commentRecentBuffer = new CommentRecentBuffer(3);
+
+    @Test
+    void 新しい順に返す() {
+        // given
+        for (int i = 1; i <= 2; i++) {
+            commentRecentBuffer.add(comment("%d".formatted(i), 0L));
+        }
+        // when
+        List<CommentResponse> recent = commentRecentBuffer.recent(10);
+        // then
+        assertThat(recent).extracting(CommentResponse::getId).containsExactly("2", "1");
+    }
+
+    @Test
+    void 容量を超えたら古いものから捨てる() {
+        // given
+        for (int i = 1; i <= 5; i++) {
+            commentRecentBuffer.add(comment("%d".formatted(i), 0L));
+        }
+        // then
+        assertThat(commentRecentBuffer.recent(10)).extracting(CommentResponse::getId).containsExactly("5", "4", "3");
+        assertThat(commentRecentBuffer.recent(2)).extracting(CommentResponse::getId).containsExactly("5", "4");
+    }
+
+    @Test
+    void 起動時の読み込みは古い方から積む() {
+        // when
+        commentRecentBuffer.addAll(List.of(comment("3", 0L), comment("2", 0L), comment("1", 0L)));
+        commentRecentBuffer.add(comment("4", 0L));
+        // then
+        assertThat(commentRecentBuffer.recent(10)).extracting(CommentResponse::getId).containsExactly("4", "3", "2");
+    }
+
+    @Test
+    void 新しいversionだけで置き換える() {
+        // given
+        commentRecentBuffer.add(comment("1", 1L));
+        // when
+        commentRecentBuffer.update(Comment.builder().id("1").content("古い").version(0L).build());
+        commentRecentBuffer.update(Comment.builder().id("1").content("新しい").version(2L).build());
+        commentRecentBuffer.update(comment("2", 5L));
+        // then
+        assertThat(commentRecentBuffer.recent(10))
+                .extracting(CommentResponse::getId, CommentResponse::getContent, CommentResponse::getVersion)
+                .containsExactly(tuple("1", "新しい", 2L));
+    }
+
+    @Test
+    void 削除したコメントは返さない() {
+        // given
+        commentRecentBuffer.add(comment("1", 0L));
+        commentRecentBuffer.add(comment("2", 0L));
+        // when
+        commentRecentBuffer.remove("1");
+        commentRecentBuffer.remove("99");
+        // then
+        assertThat(commentRecentBuffer.recent(10)).extracting(CommentResponse::getId).containsExactly("2");
+        commentRecentBuffer.update(comment("1", 3L));
+        assertThat(commentRecentBuffer.recent(10)).extracting(CommentResponse::getId).containsExactly("2");
+    }
+
+    @Test
+    void 容量が0なら保持しない() {
+        // given
+        CommentRecentBuffer disabled = new CommentRecentBuffer(0);
+        // when
+        disabled.add(comment("1", 0L));
+        // then
+        assertThat(disabled.recent(10)).isEmpty();
+    }
+
+    // 書き込みと読み取りを並行して行い、読み取りが常に整合した結果を返すことを確かめる
+    @Test
+    void 並行に読み書きしても重複や順序の逆転がない() throws Exception {
+        // given
+        int writers = 4;
+        int readers = 4;
+        int perWriter = 50_000;
+        CommentRecentBuffer buffer = new CommentRecentBuffer(64);
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch ready = new CountDownLatch(writers + readers);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+        // when
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                await(ready);
+                for (int i = 0; i < perWriter; i++) {
+                    String id = "%d-%d".formatted(writer, i);
+                    buffer.add(comment(id, 0L));
+                    if (i % 3 == 0) {
+                        buffer.remove(id);
+                    } else if (i % 3 == 1) {
+                        buffer.update(comment(id, 1L));
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                await(ready);
+                while (writing.get()) {
+                    verify(buffer.recent(32), 32, violations);
+                }
+            }));
+        }
+        for (Future<?> future : futures.subList(0, writers)) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> future : futures.subList(writers, futures.size())) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        // then
+        assertThat(violations).isEmpty();
+        List<CommentResponse> recent = buffer.recent(64);
+        verify(recent, 64, violations);
+        assertThat(violations).isEmpty();
+        assertThat(recent).isNotEmpty()
+                .allSatisfy(comment -> assertThat(sequence(comment.getId()) % 3).isNotZero())
+                .allSatisfy(comment -> assertThat(comment.getVersion())
+                        .isEqualTo(sequence(comment.getId()) % 3 == 1 ? 1L : 0L));
+    }
+
+    // 件数が limit 以下で、ID が重複せず、同じ書き込みスレッドのコメントは新しい順に並ぶ
+    private static void verify(List<CommentResponse> recent, int limit, Queue<String> violations) {
+        if (recent.size() > limit) {
+            violations.add("size " + recent.size());
+        }
+        Set<String> ids = new HashSet<>();
+        long[] last = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+        for (CommentResponse comment : recent) {
+            if (!ids.add(comment.getId())) {
+                violations.add("duplicate " + comment.getId());
+            }
+            int writer = Integer.parseInt(comment.getId().substring(0, comment.getId().indexOf('-')));
+            long sequence = sequence(comment.getId());
+            if (sequence >= last[writer]) {
+                violations.add("order " + comment.getId());
+            }
+            last[writer] = sequence;
+        }
+    }
+
+    private static long sequence(String id) {
+        return Long.parseLong(id.substring(id.indexOf('-') + 1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Comment comment(String id, Long version) {
+        return Comment.builder().id(id).role("user").content("こんにちは").version(version).build();
+    }
+}
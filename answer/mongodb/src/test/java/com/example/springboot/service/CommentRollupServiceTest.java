@@ -0,0 +1,165 @@
+package com.example.springboot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+
+@SpringBootTest
+class CommentRollupServiceTest {
+
+    @InjectMocks
+    private CommentRollupService commentRollupService;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void 同じバケットへの加算をまとめる() {
+        // given
+        List<Comment> comments = List.of(
+                Comment.builder().role("user").createdAt(LocalDateTime.parse("2023-08-01T00:05:10")).build(),
+                Comment.builder().role("user").createdAt(LocalDateTime.parse("2023-08-01T00:05:50")).build(),
+                Comment.builder().role("user").createdAt(LocalDateTime.parse("2023-08-01T00:59:00")).build());
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, CommentRollup.class)).thenReturn(bulkOperations);
+        when(bulkOperations.upsert(anyList())).thenReturn(bulkOperations);
+        // when
+        commentRollupService.increment(comments, 1);
+        // then
+        ArgumentCaptor<List<Pair<Query, Update>>> increments = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).upsert(increments.capture());
+        Map<Object, Object> counts = increments.getValue().stream()
+                .collect(Collectors.toMap(pair -> pair.getFirst().getQueryObject().get("id"),
+                        pair -> pair.getSecond().getUpdateObject().get("$inc", Document.class).get("count")));
+        assertThat(counts).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "user|MINUTE|2023-08-01T00:05", 2L,
+                "user|MINUTE|2023-08-01T00:59", 1L,
+                "user|HOUR|2023-08-01T00:00", 3L));
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void roleが変わったら更新前のroleから減算して更新後のroleに加算する() {
+        // given
+        Comment before = Comment.builder().role("user").createdAt(LocalDateTime.parse("2023-08-01T00:05:10")).build();
+        Comment after = Comment.builder().role("assistant").createdAt(before.getCreatedAt()).build();
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, CommentRollup.class)).thenReturn(bulkOperations);
+        when(bulkOperations.upsert(anyList())).thenReturn(bulkOperations);
+        // when
+        commentRollupService.move(before, after);
+        // then
+        ArgumentCaptor<List<Pair<Query, Update>>> increments = ArgumentCaptor.forClass(List.class);
+        verify(bulkOperations).upsert(increments.capture());
+        Map<Object, Object> counts = increments.getValue().stream()
+                .collect(Collectors.toMap(pair -> pair.getFirst().getQueryObject().get("id"),
+                        pair -> pair.getSecond().getUpdateObject().get("$inc", Document.class).get("count")));
+        assertThat(counts).containsExactlyInAnyOrderEntriesOf(Map.of(
+                "user|MINUTE|2023-08-01T00:05", -1L,
+                "user|HOUR|2023-08-01T00:00", -1L,
+                "assistant|MINUTE|2023-08-01T00:05", 1L,
+                "assistant|HOUR|2023-08-01T00:00", 1L));
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    void roleが変わらなければ更新しない() {
+        // given
+        Comment before = Comment.builder().role("user").createdAt(LocalDateTime.parse("2023-08-01T00:05:10")).build();
+        Comment after = Comment.builder().role("user").content("こんばんは").createdAt(before.getCreatedAt()).build();
+        // when
+        commentRollupService.move(before, after);
+        // then
+        verify(mongoTemplate, never()).bulkOps(any(BulkMode.class), eq(CommentRollup.class));
+    }
+
+    @Test
+    void 作成日時がなければ更新しない() {
+        // when
+        commentRollupService.increment(List.of(Comment.builder().role("user").build()), -1);
+        // then
+        verify(mongoTemplate, never()).bulkOps(any(BulkMode.class), eq(CommentRollup.class));
+    }
+
+    @Test
+    void find() {
+        // given
+        List<CommentRollup> rollups = List.of(CommentRollup.builder().role("user").count(1).build());
+        when(mongoTemplate.find(any(Query.class), eq(CommentRollup.class))).thenReturn(rollups);
+        // when
+        List<CommentRollup> actual = commentRollupService.find("user", Granularity.MINUTE,
+                LocalDateTime.parse("2023-08-01T00:00:00"), null);
+        // then
+        assertThat(actual).isSameAs(rollups);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(CommentRollup.class));
+        assertThat(query.getValue().getQueryObject())
+                .containsEntry("role", "user")
+                .containsEntry("granularity", Granularity.MINUTE)
+                .containsEntry("bucket", new Document("$gte", LocalDateTime.parse("2023-08-01T00:00:00")));
+        assertThat(query.getValue().getSortObject()).containsEntry("bucket", 1);
+    }
+
+    @Test
+    void rebuildは集計結果をマージして古いバケットを削除する() {
+        // given
+        Date start = new Date();
+        when(mongoTemplate.getCollectionName(CommentRollup.class)).thenReturn("comment_rollup");
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(new Document("localTime", start));
+        // when
+        commentRollupService.rebuild();
+        // then
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(Comment.class), eq(CommentRollup.class));
+        List<Document> pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertThat(pipeline.get(pipeline.size() - 1)).isEqualTo(new Document("$merge",
+                new Document("into", "comment_rollup").append("on", "_id").append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert")));
+        assertThat(pipeline).noneMatch(stage -> stage.containsKey("$out"));
+        ArgumentCaptor<Query> stale = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(stale.capture(), eq(CommentRollup.class));
+        assertThat(stale.getValue().getQueryObject().get("$or", List.class).get(0))
+                .isEqualTo(new Document("updatedAt", new Document("$lt", start)));
+    }
+
+    @Test
+    void deleteAllはロールアップを空にする() {
+        // when
+        commentRollupService.deleteAll();
+        // then
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(query.capture(), eq(CommentRollup.class));
+        assertThat(query.getValue().getQueryObject()).isEmpty();
+    }
+}
@@ -1,24 +1,73 @@
 package com.example.springboot.service;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Range.Bound;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.CollectionCallback;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import com.example.springboot.exception.exceptions.ConflictException;
+import com.example.springboot.exception.exceptions.NotFoundException;
+import com.example.springboot.persistence.codec.CommentCodecs;
 import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentSearchHit;
 import com.example.springboot.persistence.repository.CommentRepository;
+import com.example.springboot.service.CommentService.BulkItemResult;
+import com.example.springboot.service.CommentService.CountMode;
+import com.example.springboot.service.CommentService.WriteConcernMode;
+import com.example.springboot.web.response.CommentResponse;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @SpringBootTest
 public class CommentServiceTest {
@@ -29,6 +78,21 @@ public class CommentServiceTest {
         @Mock
         private CommentRepository commentRepository;
 
+        @Mock
+        private MongoTemplate mongoTemplate;
+
+        @Mock
+        private CommentRollupService commentRollupService;
+
+        @Mock
+        private CommentCache commentCache;
+
+        @Mock
+        private CommentRecentBuffer commentRecentBuffer;
+
+        @Spy
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
         @Test
         void save() {
                 // given
@@ -45,6 +109,21 @@ public class CommentServiceTest {
                                                 Comment::getUpdatedAt, Comment::getVersion)
                                 .containsExactly("1", "user", "こんにちは", LocalDateTime.parse("2023-08-01T00:00:00.000"),
                                                 LocalDateTime.parse("2023-08-02T00:00:00.000"), 1L);
+                verify(commentRollupService, never()).increment(any(), anyLong());
+        }
+
+        @Test
+        void 新規作成はロールアップに加算する() {
+                // given
+                Comment saved = Comment.builder().id("1").role("user").content("こんにちは")
+                                .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000")).version(0L).build();
+                // when
+                when(commentRepository.save(any(Comment.class))).thenReturn(saved);
+                // then
+                commentService.save(Comment.builder().role("user").content("こんにちは").build());
+                verify(commentRollupService).increment(List.of(saved), 1);
+                verify(commentCache).put(saved);
+                verify(commentRecentBuffer).add(saved);
         }
 
         @Test
@@ -63,7 +142,67 @@ public class CommentServiceTest {
                                                 Comment::getUpdatedAt, Comment::getVersion)
                                 .containsExactly("1", "user", "こんにちは", LocalDateTime.parse("2023-08-01T00:00:00.000"),
                                                 LocalDateTime.parse("2023-08-02T00:00:00.000"), 1L);
+                verify(commentCache).putIfNewer(user);
+        }
+
+        @Test
+        void キャッシュにあればDBを読まない() {
+                // given
+                Comment cached = Comment.builder().id("1").role("user").content("こんにちは").version(1L).build();
+                // when
+                when(commentCache.get("1")).thenReturn(new CommentCache.Entry(cached, 1L));
+                // then
+                assertThat(commentService.findById("1")).isSameAs(cached);
+                verify(commentRepository, never()).findById(any());
+        }
 
+        @Test
+        void commentになければアーカイブから読む() {
+                // given
+                Comment archived = Comment.builder().id("1").role("user").content("こんにちは").version(1L).build();
+                // when
+                when(commentRepository.findById("1")).thenReturn(Optional.empty());
+                when(mongoTemplate.findById("1", Comment.class, "comment_archive")).thenReturn(archived);
+                // then
+                assertThat(commentService.findById("1")).isSameAs(archived);
+                verify(commentCache).putIfNewer(archived);
+        }
+
+        @Test
+        void 最近のコメントはリングバッファから返す() {
+                // given
+                List<CommentResponse> recent = List.of(CommentResponse.builder().id("2").build(),
+                                CommentResponse.builder().id("1").build());
+                // when
+                when(commentRecentBuffer.recent(2)).thenReturn(recent);
+                // then
+                assertThat(commentService.findRecent(2)).isSameAs(recent);
+                verify(commentRepository, never()).findById(any());
+        }
+
+        @Test
+        void 起動時に新しい順に読み込む() {
+                // given
+                List<Comment> newest = List.of(Comment.builder().id("2").build(), Comment.builder().id("1").build());
+                when(commentRecentBuffer.capacity()).thenReturn(2);
+                when(mongoTemplate.find(any(Query.class), eq(Comment.class))).thenReturn(newest);
+                // when
+                commentService.warmRecent();
+                // then
+                verify(commentRecentBuffer).addAll(newest);
+                ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+                verify(mongoTemplate).find(query.capture(), eq(Comment.class));
+                assertThat(query.getValue().getSortObject()).containsEntry("createdAt", -1);
+                assertThat(query.getValue().getLimit()).isEqualTo(2);
+        }
+
+        @Test
+        void 削除済みとしてキャッシュされたコメント() {
+                // when
+                when(commentCache.get("1")).thenReturn(new CommentCache.Entry(null, Long.MAX_VALUE));
+                // then
+                assertThat(commentService.findById("1")).isNull();
+                verify(commentRepository, never()).findById(any());
         }
 
         @Test
@@ -108,13 +247,394 @@ public class CommentServiceTest {
         assertThat(result).isEqualTo(1L);
     }
 
+        @Test
+        @SuppressWarnings("unchecked")
+        void findPage() {
+                // given
+                List<CommentResponse> comments = List.of(CommentResponse.builder().id("2").build(),
+                                CommentResponse.builder().id("3").build(), CommentResponse.builder().id("4").build());
+                MongoCollection<Document> collection = mock(MongoCollection.class);
+                FindIterable<CommentResponse> iterable = mock(FindIterable.class);
+                when(mongoTemplate.execute(eq(Comment.class), any(CollectionCallback.class)))
+                                .thenAnswer(invocation -> invocation.<CollectionCallback<?>>getArgument(1)
+                                                .doInCollection(collection));
+                when(collection.withCodecRegistry(CommentCodecs.REGISTRY)).thenReturn(collection);
+                when(collection.find(any(Bson.class), eq(CommentResponse.class))).thenReturn(iterable);
+                when(iterable.sort(any())).thenReturn(iterable);
+                when(iterable.limit(3)).thenReturn(iterable);
+                when(iterable.into(anyList())).thenAnswer(invocation -> {
+                        List<CommentResponse> target = invocation.getArgument(0);
+                        target.addAll(comments);
+                        return target;
+                });
+                // when
+                Slice<CommentResponse> slice = commentService.findPage("64c8a1000000000000000000", 2);
+                // then
+                assertThat(slice.getContent()).extracting(CommentResponse::getId).containsExactly("2", "3");
+                assertThat(slice.hasNext()).isTrue();
+                ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+                verify(collection).find(filter.capture(), eq(CommentResponse.class));
+                assertThat(filter.getValue().toBsonDocument()).isEqualTo(BsonDocument.parse(
+                                "{_id: {$gt: {$oid: '64c8a1000000000000000000'}}}"));
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void findByRole() {
+                // given
+                LocalDateTime from = LocalDateTime.parse("2023-08-01T00:00:00");
+                List<Comment> comments = List.of(Comment.builder().id("1").role("user").build());
+                // when
+                when(commentRepository.findByRoleAndCreatedAtBetween(eq("user"), any(Range.class), any(Pageable.class)))
+                                .thenReturn(comments);
+                // then
+                assertThat(commentService.findByRole("user", from, null, 10)).isSameAs(comments);
+                ArgumentCaptor<Range<LocalDateTime>> range = ArgumentCaptor.forClass(Range.class);
+                verify(commentRepository).findByRoleAndCreatedAtBetween(eq("user"), range.capture(),
+                                eq(PageRequest.of(0, 10, Sort.by("createdAt"))));
+                assertThat(range.getValue().getLowerBound()).isEqualTo(Bound.inclusive(from));
+                assertThat(range.getValue().getUpperBound().isBounded()).isFalse();
+        }
+
+        @Test
+        void search() {
+                // given
+                List<CommentSearchHit> hits = List.of(CommentSearchHit.builder().id("1").score(1.0f).build());
+                // when
+                when(mongoTemplate.getCollectionName(Comment.class)).thenReturn("comment");
+                when(mongoTemplate.find(any(Query.class), eq(CommentSearchHit.class), eq("comment"))).thenReturn(hits);
+                // then
+                assertThat(commentService.search("mongo index", 20)).isSameAs(hits);
+                ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+                verify(mongoTemplate).find(query.capture(), eq(CommentSearchHit.class), eq("comment"));
+                assertThat(query.getValue().getQueryObject().get("$text", Document.class))
+                                .containsEntry("$search", "mongo index");
+                assertThat(query.getValue().getSortObject()).containsKey("score");
+                assertThat(query.getValue().getFieldsObject())
+                                .containsKeys("role", "content", "createdAt", "score")
+                                .doesNotContainKeys("updatedAt", "version");
+                assertThat(query.getValue().getLimit()).isEqualTo(20);
+        }
+
+        @Test
+        void countByMode() {
+                // when
+                when(commentRepository.count()).thenReturn(3L);
+                when(mongoTemplate.estimatedCount(Comment.class)).thenReturn(4L);
+                // then
+                assertThat(commentService.count(CountMode.EXACT)).isEqualTo(3L);
+                assertThat(commentService.count(CountMode.ESTIMATED)).isEqualTo(4L);
+                assertThat(commentService.count(CountMode.NONE)).isNull();
+        }
+
+        @Test
+        void update() throws Exception {
+                // given
+                Comment before = Comment.builder().id("1").role("user")
+                                .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000")).version(1L).build();
+                Comment after = Comment.builder().id("1").role("user").content("こんばんは")
+                                .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
+                                .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(2L).build();
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class))).thenReturn(before);
+                when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class))).thenReturn(after);
+                // then
+                Comment result = commentService.update("1", 1L, "user", "こんばんは");
+                assertThat(result).isEqualTo(after);
+                ArgumentCaptor<Query> preImage = ArgumentCaptor.forClass(Query.class);
+                verify(mongoTemplate).findOne(preImage.capture(), eq(Comment.class));
+                assertThat(preImage.getValue().getFieldsObject())
+                                .containsOnlyKeys("role", "createdAt", "version");
+                ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+                ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+                ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+                verify(mongoTemplate).findAndModify(query.capture(), update.capture(), options.capture(),
+                                eq(Comment.class));
+                assertThat(query.getValue().getQueryObject()).containsEntry("id", "1").containsEntry("version", 1L);
+                assertThat(update.getValue().modifies("role")).isTrue();
+                assertThat(update.getValue().modifies("content")).isTrue();
+                assertThat(update.getValue().getUpdateObject().get("$inc", Document.class))
+                                .containsEntry("version", 1);
+                assertThat(options.getValue().isReturnNew()).isTrue();
+                verify(commentRollupService).move(before, after);
+                verify(commentCache).putIfNewer(after);
+                verify(commentRecentBuffer).update(after);
+        }
+
+        @Test
+        void roleを変更したらロールアップを移す() throws Exception {
+                // given
+                Comment before = Comment.builder().id("1").role("user")
+                                .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000")).version(1L).build();
+                Comment after = Comment.builder().id("1").role("assistant").content("こんにちは")
+                                .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000")).version(2L).build();
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class))).thenReturn(before);
+                when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class))).thenReturn(after);
+                // then
+                Comment result = commentService.patch("1", null, "assistant", null);
+                assertThat(result).extracting(Comment::getRole, Comment::getContent)
+                                .containsExactly("assistant", "こんにちは");
+                verify(commentRollupService).move(before, after);
+        }
+
+        @Test
+        void patchは指定された項目だけ更新する() throws Exception {
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class)))
+                                .thenReturn(Comment.builder().id("1").role("user").version(0L).build());
+                when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class)))
+                                .thenReturn(Comment.builder().id("1").role("user").content("こんばんは").version(1L)
+                                                .build());
+                // then
+                Comment result = commentService.patch("1", null, null, "こんばんは");
+                assertThat(result).extracting(Comment::getRole, Comment::getContent, Comment::getVersion)
+                                .containsExactly("user", "こんばんは", 1L);
+                ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+                ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+                verify(mongoTemplate).findAndModify(query.capture(), update.capture(),
+                                any(FindAndModifyOptions.class), eq(Comment.class));
+                // 読んだ時点の version を条件にする
+                assertThat(query.getValue().getQueryObject()).containsEntry("version", 0L);
+                assertThat(update.getValue().modifies("role")).isFalse();
+                assertThat(update.getValue().modifies("content")).isTrue();
+        }
+
+        @Test
+        void versionの指定がなければ競合した更新を読み直してやり直す() throws Exception {
+                // given
+                Comment after = Comment.builder().id("1").role("user").content("こんばんは").version(3L).build();
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class)))
+                                .thenReturn(Comment.builder().id("1").role("user").version(1L).build())
+                                .thenReturn(Comment.builder().id("1").role("user").version(2L).build());
+                when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class)))
+                                .thenReturn(null)
+                                .thenReturn(after);
+                // then
+                assertThat(commentService.patch("1", null, null, "こんばんは")).isEqualTo(after);
+                ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+                verify(mongoTemplate, times(2)).findAndModify(query.capture(), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class));
+                assertThat(query.getAllValues()).extracting(q -> q.getQueryObject().get("version"))
+                                .containsExactly(1L, 2L);
+                assertThat(meterRegistry.counter("comment.update.retries").count()).isEqualTo(1);
+        }
+
+        @Test
+        void versionの指定がない更新の競合が続けば409() {
+                // given
+                ReflectionTestUtils.setField(commentService, "updateMaxAttempts", 3);
+                ReflectionTestUtils.setField(commentService, "updateBackoff", Duration.ZERO);
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class)))
+                                .thenReturn(Comment.builder().id("1").role("user").version(1L).build());
+                // then
+                assertThrows(ConflictException.class, () -> commentService.patch("1", null, null, "こんばんは"));
+                verify(mongoTemplate, times(3)).findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class));
+                assertThat(meterRegistry.counter("comment.update.retries").count()).isEqualTo(2);
+        }
+
+        @Test
+        void アーカイブ済みのコメントを更新する() throws Exception {
+                // given
+                Comment before = Comment.builder().id("1").role("user")
+                                .createdAt(LocalDateTime.parse("2020-08-01T00:00:00.000")).version(1L).build();
+                Comment after = Comment.builder().id("1").role("user").content("こんばんは")
+                                .createdAt(LocalDateTime.parse("2020-08-01T00:00:00.000")).version(2L).build();
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class), eq("comment_archive")))
+                                .thenReturn(before);
+                when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class), eq("comment_archive")))
+                                .thenReturn(after);
+                // then
+                Comment result = commentService.update("1", 1L, "user", "こんばんは");
+                assertThat(result).extracting(Comment::getContent, Comment::getVersion)
+                                .containsExactly("こんばんは", 2L);
+                verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class));
+                verify(commentCache).putIfNewer(result);
+        }
+
+        @Test
+        void アーカイブ済みのコメントのバージョンが一致しない() {
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class), eq("comment_archive")))
+                                .thenReturn(Comment.builder().id("1").role("user").version(2L).build());
+                // then
+                assertThrows(ConflictException.class, () -> commentService.update("1", 1L, "user", "こんばんは"));
+        }
+
+        @Test
+        void バージョンが一致しない() {
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class)))
+                                .thenReturn(Comment.builder().id("1").role("user").version(2L).build());
+                // then
+                assertThrows(ConflictException.class, () -> commentService.update("1", 1L, "user", "こんばんは"));
+                verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class));
+        }
+
+        @Test
+        void 読んでから書くまでに更新されたら409() {
+                // when
+                when(mongoTemplate.findOne(any(Query.class), eq(Comment.class)))
+                                .thenReturn(Comment.builder().id("1").role("user").version(1L).build());
+                // then
+                assertThrows(ConflictException.class, () -> commentService.update("1", 1L, "user", "こんばんは"));
+                verify(mongoTemplate, times(1)).findAndModify(any(Query.class), any(Update.class),
+                                any(FindAndModifyOptions.class), eq(Comment.class));
+        }
+
+        @Test
+        void 存在しないコメントの更新() {
+                // then
+                assertThrows(NotFoundException.class, () -> commentService.update("99", 1L, "user", "こんばんは"));
+                assertThrows(NotFoundException.class, () -> commentService.patch("99", null, null, "こんばんは"));
+        }
+
+        @Test
+        void bulkInsertは分割して挿入する() {
+                // given
+                List<Comment> comments = new ArrayList<>();
+                for (int i = 0; i < 2500; i++) {
+                        comments.add(Comment.builder().role("user").content("comment" + i).build());
+                }
+                BulkOperations bulkOperations = mock(BulkOperations.class);
+                when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Comment.class)).thenReturn(bulkOperations);
+                when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+                // when
+                List<BulkItemResult> results = commentService.bulkInsert(comments);
+                // then
+                verify(bulkOperations).insert(comments.subList(0, 1000));
+                verify(bulkOperations).insert(comments.subList(1000, 2000));
+                verify(bulkOperations).insert(comments.subList(2000, 2500));
+                assertThat(results).hasSize(2500).allMatch(BulkItemResult::inserted);
+                assertThat(comments).allMatch(comment -> comment.getId() != null && comment.getVersion() == 0L);
+        }
+
+        @Test
+        void bulkInsertは作成日時を設定する() {
+                // given
+                List<Comment> comments = List.of(Comment.builder().role("user").content("こんにちは").build());
+                BulkOperations bulkOperations = mock(BulkOperations.class);
+                when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Comment.class)).thenReturn(bulkOperations);
+                when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+                // when
+                commentService.bulkInsert(comments);
+                // then
+                assertThat(comments.get(0).getCreatedAt()).isNotNull();
+                assertThat(comments.get(0).getUpdatedAt()).isEqualTo(comments.get(0).getCreatedAt());
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void 非同期受付の書き込み保証を指定した挿入でも作成日時を設定する() {
+                // given
+                List<Comment> comments = List.of(Comment.builder().role("user").content("こんにちは").build());
+                ((Map<WriteConcernMode, MongoTemplate>) ReflectionTestUtils.getField(commentService, "writeTemplates"))
+                                .put(WriteConcernMode.W1, mongoTemplate);
+                BulkOperations bulkOperations = mock(BulkOperations.class);
+                when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Comment.class)).thenReturn(bulkOperations);
+                when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+                // when
+                commentService.bulkInsert(comments, WriteConcernMode.W1);
+                // then
+                verify(bulkOperations).insert(comments);
+                assertThat(comments.get(0))
+                                .extracting(Comment::getCreatedAt, Comment::getUpdatedAt)
+                                .doesNotContainNull();
+                verify(commentRollupService).increment(comments, 1);
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void 応答を待たないbulkInsertは挿入済みとして扱わない() {
+                // given
+                List<Comment> comments = List.of(Comment.builder().role("user").content("こんにちは").build());
+                ((Map<WriteConcernMode, MongoTemplate>) ReflectionTestUtils.getField(commentService, "writeTemplates"))
+                                .put(WriteConcernMode.UNACKNOWLEDGED, mongoTemplate);
+                BulkOperations bulkOperations = mock(BulkOperations.class);
+                when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Comment.class)).thenReturn(bulkOperations);
+                when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+                // when
+                List<BulkItemResult> results = commentService.bulkInsert(comments, WriteConcernMode.UNACKNOWLEDGED);
+                // then
+                assertThat(results)
+                                .extracting(BulkItemResult::id, BulkItemResult::acknowledged, BulkItemResult::inserted)
+                                .containsExactly(tuple(comments.get(0).getId(), false, false));
+                verify(commentRollupService).increment(List.of(), 1);
+                verify(commentCache, never()).put(any(Comment.class));
+                verify(commentRecentBuffer, never()).add(any(Comment.class));
+        }
+
+        @Test
+        void bulkInsertは失敗した要素だけを報告する() {
+                // given
+                List<Comment> comments = List.of(
+                                Comment.builder().id("1").role("user").content("こんにちは").build(),
+                                Comment.builder().role("user").content("こんばんは").build());
+                BulkOperations bulkOperations = mock(BulkOperations.class);
+                when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Comment.class)).thenReturn(bulkOperations);
+                when(bulkOperations.insert(anyList())).thenReturn(bulkOperations);
+                BulkWriteError error = new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 0);
+                when(bulkOperations.execute()).thenThrow(new BulkOperationException("bulk write failed",
+                                new MongoBulkWriteException(BulkWriteResult.acknowledged(1, 0, 0, 0, List.of(), List.of()),
+                                                List.of(error), null, new ServerAddress(), Set.of())));
+                // when
+                List<BulkItemResult> results = commentService.bulkInsert(comments);
+                // then
+                assertThat(results)
+                                .extracting(BulkItemResult::index, BulkItemResult::id, BulkItemResult::inserted)
+                                .containsExactly(tuple(0, "1", false), tuple(1, comments.get(1).getId(), true));
+                assertThat(results.get(0).error()).isEqualTo("E11000 duplicate key error");
+                verify(commentRollupService).increment(List.of(comments.get(1)), 1);
+        }
+
         @Test
         void deleteById() {
+                // given
+                Comment removed = Comment.builder().id("1").role("user")
+                                .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000")).build();
+                // when
+                when(mongoTemplate.findAndRemove(any(Query.class), eq(Comment.class))).thenReturn(removed);
+                // then
+                commentService.deleteById("1");
+                verify(commentRollupService).increment(List.of(removed), -1);
+                verify(commentCache).putDeleted("1");
+                verify(commentRecentBuffer).remove("1");
+        }
+
+        @Test
+        void アーカイブ済みのコメントを削除する() {
+                // given
+                Comment removed = Comment.builder().id("1").role("user")
+                                .createdAt(LocalDateTime.parse("2020-08-01T00:00:00.000")).build();
                 // when
-                doNothing().when(commentRepository).deleteById("1");
+                when(mongoTemplate.findAndRemove(any(Query.class), eq(Comment.class))).thenReturn(null);
+                when(mongoTemplate.findAndRemove(any(Query.class), eq(Comment.class), eq("comment_archive")))
+                                .thenReturn(removed);
                 // then
                 commentService.deleteById("1");
-                verify(commentRepository).deleteById("1");
+                verify(commentRollupService).increment(List.of(removed), -1);
+                verify(commentCache).putDeleted("1");
+        }
+
+        @Test
+        void 存在しないコメントの削除はロールアップを変えない() {
+                // when
+                when(mongoTemplate.findAndRemove(any(Query.class), eq(Comment.class))).thenReturn(null);
+                // then
+                commentService.deleteById("99");
+                verify(commentRollupService, never()).increment(any(), anyLong());
+                verify(commentCache, never()).putDeleted(any());
         }
 
         @Test
@@ -124,5 +644,9 @@ public class CommentServiceTest {
                 // then
                 commentService.deleteAll();
                 verify(commentRepository).deleteAll();
+                verify(mongoTemplate).remove(any(Query.class), eq("comment_archive"));
+                verify(commentRollupService).deleteAll();
+                verify(commentCache).clear();
+                verify(commentRecentBuffer).clear();
         }
 }
@@ -1,7 +1,12 @@
 package com.example.springboot.web.controller;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -9,6 +14,7 @@ import java.util.Map;
 
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -17,15 +23,34 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.example.springboot.exception.exceptions.ConflictException;
+import com.example.springboot.exception.exceptions.NotFoundException;
+import com.example.springboot.exception.exceptions.ServiceUnavailableException;
 import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+import com.example.springboot.persistence.entity.CommentSearchHit;
+import com.example.springboot.service.CommentChangeService;
+import com.example.springboot.service.CommentChangeService.CommentChange;
+import com.example.springboot.service.CommentIngestService;
+import com.example.springboot.service.CommentRollupService;
 import com.example.springboot.service.CommentService;
+import com.example.springboot.service.CommentService.BulkItemResult;
+import com.example.springboot.service.CommentService.CountMode;
+import com.example.springboot.service.CommentService.WriteConcernMode;
 import com.example.springboot.web.response.CommentIndexResponse;
 import com.example.springboot.web.response.CommentResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import reactor.core.publisher.Flux;
+
 @WebMvcTest(CommentController.class)
 class CommentControllerTest {
 
@@ -38,30 +63,251 @@ class CommentControllerTest {
     @MockBean
     private CommentService commentService;
 
+    @MockBean
+    private CommentChangeService commentChangeService;
+
+    @MockBean
+    private CommentRollupService commentRollupService;
+
+    @MockBean
+    private CommentIngestService commentIngestService;
+
+    @Nested
+    class findAll {
+        @Test
+        void OK() throws Exception {
+            // given
+            List<CommentResponse> commentList = List.of(
+                    CommentResponse.builder().id("1").role("user").content("こんにちは")
+                            .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
+                            .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build(),
+                    CommentResponse.builder().id("2").role("user").content("こんばんは")
+                            .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
+                            .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build());
+            CommentIndexResponse expected = CommentIndexResponse.builder().count(2L).comments(commentList).build();
+            when(commentService.findPage(null, 100)).thenReturn(new SliceImpl<>(commentList));
+            when(commentService.count(CountMode.EXACT)).thenReturn(2L);
+            // when, then
+            mockMvc.perform(get("/api/comment"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(objectMapper.writeValueAsString(expected)))
+                    .andExpect(jsonPath("$.next").doesNotExist());
+        }
+
+        @Test
+        void 次ページがある場合は継続トークンを返す() throws Exception {
+            // given
+            List<CommentResponse> commentList = List.of(
+                    CommentResponse.builder().id("1").role("user").content("こんにちは").build());
+            when(commentService.findPage(null, 1))
+                    .thenReturn(new SliceImpl<>(commentList, PageRequest.of(0, 1), true));
+            // when, then
+            mockMvc.perform(get("/api/comment").param("limit", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.next").value("MQ"));
+        }
+
+        @Test
+        void 継続トークンの続きから取得する() throws Exception {
+            // given
+            when(commentService.findPage("1", 100)).thenReturn(new SliceImpl<>(List.of()));
+            // when, then
+            mockMvc.perform(get("/api/comment").param("after", "MQ"))
+                    .andExpect(status().isOk());
+            verify(commentService).findPage("1", 100);
+        }
+
+        @Test
+        void 上限を超えるlimitは切り詰める() throws Exception {
+            // given
+            when(commentService.findPage(null, 1000)).thenReturn(new SliceImpl<>(List.of()));
+            // when, then
+            mockMvc.perform(get("/api/comment").param("limit", "100000"))
+                    .andExpect(status().isOk());
+            verify(commentService).findPage(null, 1000);
+        }
+
+        @Test
+        void 件数の取得方法を指定する() throws Exception {
+            // given
+            when(commentService.findPage(null, 100)).thenReturn(new SliceImpl<>(List.of()));
+            when(commentService.count(CountMode.ESTIMATED)).thenReturn(3L);
+            // when, then
+            mockMvc.perform(get("/api/comment").param("count", "ESTIMATED"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.count").value(3));
+            verify(commentService).count(CountMode.ESTIMATED);
+        }
+
+        @Test
+        void 不正な継続トークン() throws Exception {
+            // when, then
+            mockMvc.perform(get("/api/comment").param("after", "!!!"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    class findByRole {
+        @Test
+        void 期間を指定して取得する() throws Exception {
+            // given
+            Comment comment = Comment.builder().id("1").role("user").content("こんにちは")
+                    .createdAt(LocalDateTime.parse("2023-08-01T00:30:00")).version(0L).build();
+            when(commentService.findByRole("user", LocalDateTime.parse("2023-08-01T00:00:00"),
+                    LocalDateTime.parse("2023-08-01T01:00:00"), 100)).thenReturn(List.of(comment));
+            // when, then
+            mockMvc.perform(get("/api/comment")
+                            .param("role", "user")
+                            .param("from", "2023-08-01T00:00:00")
+                            .param("to", "2023-08-01T01:00:00"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.comments[0].id").value("1"))
+                    .andExpect(jsonPath("$.count").doesNotExist());
+            verify(commentService, never()).findPage(any(), anyInt());
+        }
+
+        @Test
+        void 期間の指定は省略できる() throws Exception {
+            // given
+            when(commentService.findByRole("assistant", null, null, 10)).thenReturn(List.of());
+            // when, then
+            mockMvc.perform(get("/api/comment").param("role", "assistant").param("limit", "10"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.comments").isEmpty());
+        }
+
+        @Test
+        void 不正な日時() throws Exception {
+            // when, then
+            mockMvc.perform(get("/api/comment").param("role", "user").param("from", "yesterday"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Nested
+    class findRecent {
+        @Test
+        void OK() throws Exception {
+            // given
+            when(commentService.findRecent(20)).thenReturn(List.of(
+                    CommentResponse.builder().id("2").role("user").content("こんばんは").version(0L).build(),
+                    CommentResponse.builder().id("1").role("user").content("こんにちは").version(0L).build()));
+            // when, then
+            mockMvc.perform(get("/api/comment/recent"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.comments[0].id").value("2"))
+                    .andExpect(jsonPath("$.comments[1].id").value("1"))
+                    .andExpect(jsonPath("$.count").doesNotExist());
+            verify(commentService, never()).findById(any());
+        }
+
+        @Test
+        void 件数は容量までに制限する() throws Exception {
+            // given
+            when(commentService.findRecent(1000)).thenReturn(List.of());
+            // when, then
+            mockMvc.perform(get("/api/comment/recent").param("limit", "5000"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.comments").isEmpty());
+        }
+    }
+
+    @Nested
+    class search {
+        @Test
+        void 関連度の高い順に返す() throws Exception {
+            // given
+            when(commentService.search("mongo index", 20)).thenReturn(List.of(
+                    CommentSearchHit.builder().id("1").role("user").content("mongo index").score(1.5f).build(),
+                    CommentSearchHit.builder().id("2").role("user").content("mongo").score(0.75f).build()));
+            // when, then
+            mockMvc.perform(get("/api/comment/search").param("q", "mongo index"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.comments[0].id").value("1"))
+                    .andExpect(jsonPath("$.comments[0].score").value(1.5))
+                    .andExpect(jsonPath("$.comments[1].id").value("2"))
+                    .andExpect(jsonPath("$.comments[0].version").doesNotExist());
+        }
+
+        @Test
+        void 上限を超えるlimitは切り詰める() throws Exception {
+            // given
+            when(commentService.search("mongo", 100)).thenReturn(List.of());
+            // when, then
+            mockMvc.perform(get("/api/comment/search").param("q", "mongo").param("limit", "1000"))
+                    .andExpect(status().isOk());
+            verify(commentService).search("mongo", 100);
+        }
+
+        @Test
+        void 検索語が空() throws Exception {
+            // when, then
+            mockMvc.perform(get("/api/comment/search").param("q", " "))
+                    .andExpect(status().isBadRequest());
+            verify(commentService, never()).search(any(), anyInt());
+        }
+    }
+
+    @Nested
+    class rollups {
+        @Test
+        void roleと期間で取得する() throws Exception {
+            // given
+            when(commentRollupService.find("user", Granularity.MINUTE, LocalDateTime.parse("2023-08-01T00:00:00"),
+                    LocalDateTime.parse("2023-08-01T01:00:00"))).thenReturn(List.of(
+                            CommentRollup.builder().role("user").granularity(Granularity.MINUTE)
+                                    .bucket(LocalDateTime.parse("2023-08-01T00:05:00")).count(3).build()));
+            // when, then
+            mockMvc.perform(get("/api/comment/rollups")
+                            .param("role", "user")
+                            .param("granularity", "MINUTE")
+                            .param("from", "2023-08-01T00:00:00")
+                            .param("to", "2023-08-01T01:00:00"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.role").value("user"))
+                    .andExpect(jsonPath("$.granularity").value("MINUTE"))
+                    .andExpect(jsonPath("$.rollups[0].bucket").value("2023-08-01T00:05:00"))
+                    .andExpect(jsonPath("$.rollups[0].count").value(3));
+        }
+
+        @Test
+        void 既定の粒度は1時間() throws Exception {
+            // given
+            when(commentRollupService.find("user", Granularity.HOUR, null, null)).thenReturn(List.of());
+            // when, then
+            mockMvc.perform(get("/api/comment/rollups").param("role", "user"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.rollups").isEmpty());
+        }
+
+        @Test
+        void 再集計() throws Exception {
+            // when, then
+            mockMvc.perform(post("/api/comment/rollups/rebuild"))
+                    .andExpect(status().isNoContent());
+            verify(commentRollupService).rebuild();
+        }
+    }
+
     @Test
-    void findAll() throws Exception {
+    void changes() throws Exception {
         // given
-        List<Comment> commentList = List.of(
-                Comment.builder().id("1").role("user").content("こんにちは")
-                        .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
-                        .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build(),
-                Comment.builder().id("2").role("user").content("こんばんは")
-                        .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
-                        .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build());
-        CommentIndexResponse expected = CommentIndexResponse.builder().count(2L).comments(List.of(
-                CommentResponse.builder().id("1").role("user").content("こんにちは")
-                        .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
-                        .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build(),
-                CommentResponse.builder().id("2").role("user").content("こんばんは")
-                        .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
-                        .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build()))
-                .build();
-        when(commentService.count()).thenReturn(2L);
-        when(commentService.findAll()).thenReturn(commentList);
-        // when, then
-        mockMvc.perform(get("/api/comment"))
+        Comment comment = Comment.builder().id("1").role("user").content("こんにちは").version(0L).build();
+        when(commentChangeService.changes("token0")).thenReturn(Flux.just(
+                new CommentChange("token1", "insert", "1", comment)));
+        // when
+        MvcResult mvcResult = mockMvc.perform(get("/api/comment/changes")
+                        .header("Last-Event-ID", "token0")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // then
+        String body = mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
-                .andExpect(content().json(objectMapper.writeValueAsString(expected)));
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertThat(body).contains("id:token1\nevent:insert\n").contains("\"content\":\"こんにちは\"");
     }
 
     @Nested
@@ -109,22 +355,87 @@ class CommentControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Nested
+    class insertAsync {
+        @Test
+        void 受け付けたIDを202で返す() throws Exception {
+            // given
+            when(commentIngestService.submit(any(Comment.class), eq(WriteConcernMode.MAJORITY))).thenReturn("1");
+            // when, then
+            mockMvc.perform(post("/api/comment/async")
+                            .param("writeConcern", "MAJORITY")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of("role", "user", "content", "こんにちは"))))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.id").value("1"))
+                    .andExpect(jsonPath("$.writeConcern").value("MAJORITY"));
+        }
+
+        @Test
+        void 書き込み保証の既定はW1() throws Exception {
+            // given
+            when(commentIngestService.submit(any(Comment.class), eq(WriteConcernMode.W1))).thenReturn("1");
+            // when, then
+            mockMvc.perform(post("/api/comment/async")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of("role", "user", "content", "こんにちは"))))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.writeConcern").value("W1"));
+        }
+
+        @Test
+        void キューが一杯なら503() throws Exception {
+            // given
+            when(commentIngestService.submit(any(Comment.class), any()))
+                    .thenThrow(new ServiceUnavailableException("コメントの受付が混み合っています。時間をおいて再度お試しください。"));
+            // when, then
+            mockMvc.perform(post("/api/comment/async")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(Map.of("role", "user", "content", "こんにちは"))))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(jsonPath("$.message").value("コメントの受付が混み合っています。時間をおいて再度お試しください。"));
+        }
+    }
+
+    @Test
+    void bulkInsert() throws Exception {
+        // given
+        Map<String, Object> commentBulkRequestMap = Map.of("comments", List.of(
+                Map.of("role", "user", "content", "こんにちは"),
+                Map.of("id", "1", "role", "assistant", "content", "こんばんは")));
+        when(commentService.bulkInsert(any())).thenReturn(List.of(
+                new BulkItemResult(0, "2", null),
+                new BulkItemResult(1, "1", "E11000 duplicate key error")));
+        // when, then
+        mockMvc.perform(post("/api/comment/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(commentBulkRequestMap)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].id").value("2"))
+                .andExpect(jsonPath("$.results[0].inserted").value(true))
+                .andExpect(jsonPath("$.results[1].index").value(1))
+                .andExpect(jsonPath("$.results[1].inserted").value(false))
+                .andExpect(jsonPath("$.results[1].message").value("E11000 duplicate key error"));
+    }
+
     @Nested
     class update {
         @Test
         void OK() throws Exception {
             // given
-            Map<String, String> commentRequestMap = new HashMap<>();
+            Map<String, Object> commentRequestMap = new HashMap<>();
             commentRequestMap.put("role", "user");
             commentRequestMap.put("content", "こんにちは");
+            commentRequestMap.put("version", 1);
             Comment comment = Comment.builder().id("1").role("user").content("こんにちは")
                     .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
-                    .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build();
+                    .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(2L).build();
             CommentResponse expected = CommentResponse.builder().id("1").role("user").content("こんにちは")
                     .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
-                    .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build();
-            when(commentService.findById("1")).thenReturn(comment);
-            when(commentService.save(any(Comment.class))).thenReturn(comment);
+                    .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(2L).build();
+            when(commentService.update("1", 1L, "user", "こんにちは")).thenReturn(comment);
             // when, then
             mockMvc.perform(put("/api/comment/1")
                     .contentType(MediaType.APPLICATION_JSON)
@@ -139,12 +450,58 @@ class CommentControllerTest {
             Map<String, String> commentRequestMap = new HashMap<>();
             commentRequestMap.put("role", "user");
             commentRequestMap.put("content", "こんにちは");
-            when(commentService.findById("1")).thenReturn(null);
-            when(commentService.save(any(Comment.class))).thenReturn(null);
+            when(commentService.update("1", null, "user", "こんにちは"))
+                    .thenThrow(new NotFoundException("IDが 1 のコメントは存在しません。"));
             // when, then
             mockMvc.perform(put("/api/comment/1")
                     .contentType(MediaType.APPLICATION_JSON)
                     .content(objectMapper.writeValueAsString(commentRequestMap)))
+                    .andExpect(status().isNotFound())
+                    .andExpect(jsonPath("$.message").value("IDが 1 のコメントは存在しません。"));
+        }
+
+        @Test
+        void CONFLICT() throws Exception {
+            // given
+            Map<String, Object> commentRequestMap = new HashMap<>();
+            commentRequestMap.put("role", "user");
+            commentRequestMap.put("content", "こんにちは");
+            commentRequestMap.put("version", 0);
+            when(commentService.update("1", 0L, "user", "こんにちは"))
+                    .thenThrow(new ConflictException("IDが 1 のコメントはバージョン 0 から更新されています。"));
+            // when, then
+            mockMvc.perform(put("/api/comment/1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(commentRequestMap)))
+                    .andExpect(status().isConflict());
+        }
+    }
+
+    @Nested
+    class patch {
+        @Test
+        void OK() throws Exception {
+            // given
+            Comment comment = Comment.builder().id("1").role("user").content("こんばんは").version(1L).build();
+            when(commentService.patch("1", null, null, "こんばんは")).thenReturn(comment);
+            // when, then
+            mockMvc.perform(MockMvcRequestBuilders.patch("/api/comment/1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Map.of("content", "こんばんは"))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.role").value("user"))
+                    .andExpect(jsonPath("$.content").value("こんばんは"));
+        }
+
+        @Test
+        void NOT_FOUND() throws Exception {
+            // given
+            when(commentService.patch("99", null, null, "こんばんは"))
+                    .thenThrow(new NotFoundException("IDが 99 のコメントは存在しません。"));
+            // when, then
+            mockMvc.perform(MockMvcRequestBuilders.patch("/api/comment/99")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Map.of("content", "こんばんは"))))
                     .andExpect(status().isNotFound());
         }
     }
@@ -0,0 +1,404 @@
+package com.example.springboot.web.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.springboot.exception.exceptions.ConflictException;
+import com.example.springboot.exception.exceptions.NotFoundException;
+import com.example.springboot.exception.exceptions.ServiceUnavailableException;
+import com.example.springboot.persistence.entity.Comment;
+import com.example.springboot.persistence.entity.CommentRollup;
+import com.example.springboot.persistence.entity.CommentRollup.Granularity;
+import com.example.springboot.persistence.entity.CommentSearchHit;
+import com.example.springboot.service.CommentChangeService;
+import com.example.springboot.service.CommentChangeService.CommentChange;
+import com.example.springboot.service.CommentIngestService;
+import com.example.springboot.service.CommentService.BulkItemResult;
+import com.example.springboot.service.CommentService.CountMode;
+import com.example.springboot.service.CommentService.WriteConcernMode;
+import com.example.springboot.service.ReactiveCommentRollupService;
+import com.example.springboot.service.ReactiveCommentService;
+import com.example.springboot.web.response.CommentChangeResponse;
+import com.example.springboot.web.response.CommentResponse;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@WebFluxTest(ReactiveCommentController.class)
+class ReactiveCommentControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveCommentService reactiveCommentService;
+
+    @MockBean
+    private CommentChangeService commentChangeService;
+
+    @MockBean
+    private ReactiveCommentRollupService reactiveCommentRollupService;
+
+    @MockBean
+    private CommentIngestService commentIngestService;
+
+    private final Comment comment1 = Comment.builder().id("1").role("user").content("こんにちは")
+            .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
+            .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build();
+    private final Comment comment2 = Comment.builder().id("2").role("user").content("こんばんは")
+            .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
+            .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build();
+    private final CommentResponse response1 = CommentResponse.builder().id("1").role("user").content("こんにちは")
+            .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
+            .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build();
+    private final CommentResponse response2 = CommentResponse.builder().id("2").role("user").content("こんばんは")
+            .createdAt(LocalDateTime.parse("2023-08-01T00:00:00.000"))
+            .updatedAt(LocalDateTime.parse("2023-08-02T00:00:00.000")).version(1L).build();
+
+    @Nested
+    class findAll {
+        @Test
+        void OK() {
+            // given
+            when(reactiveCommentService.findPage(null, 101)).thenReturn(Flux.just(response1, response2));
+            when(reactiveCommentService.count(CountMode.EXACT)).thenReturn(Mono.just(2L));
+            // when, then
+            webTestClient.get().uri("/api/comment").accept(MediaType.APPLICATION_JSON).exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.count").isEqualTo(2)
+                    .jsonPath("$.comments[0].id").isEqualTo("1")
+                    .jsonPath("$.comments[1].content").isEqualTo("こんばんは")
+                    .jsonPath("$.next").doesNotExist();
+        }
+
+        @Test
+        void 次ページがある場合は継続トークンを返す() {
+            // given
+            when(reactiveCommentService.findPage("1", 2)).thenReturn(Flux.just(response2, response1));
+            when(reactiveCommentService.count(CountMode.NONE)).thenReturn(Mono.empty());
+            // when, then
+            webTestClient.get().uri("/api/comment?after=MQ&limit=1&count=NONE").accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.count").doesNotExist()
+                    .jsonPath("$.comments.length()").isEqualTo(1)
+                    .jsonPath("$.next").isEqualTo("Mg");
+        }
+
+        @Test
+        void NDJSONで逐次返す() {
+            // given
+            when(reactiveCommentService.streamAll()).thenReturn(Flux.just(response1, response2));
+            // when
+            Flux<CommentResponse> body = webTestClient.get().uri("/api/comment")
+                    .accept(MediaType.APPLICATION_NDJSON).exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    .returnResult(CommentResponse.class).getResponseBody();
+            // then
+            StepVerifier.create(body.map(CommentResponse::getId), 1)
+                    .expectNext("1")
+                    .thenRequest(1)
+                    .expectNext("2")
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void findByRole() {
+        // given
+        when(reactiveCommentService.findByRole("user", LocalDateTime.parse("2023-08-01T00:00:00"), null, 100))
+                .thenReturn(Flux.just(comment1, comment2));
+        // when, then
+        webTestClient.get().uri("/api/comment?role=user&from=2023-08-01T00:00:00")
+                .accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.comments.length()").isEqualTo(2)
+                .jsonPath("$.comments[1].id").isEqualTo("2");
+    }
+
+    @Test
+    void search() {
+        // given
+        when(reactiveCommentService.search("mongo", 20)).thenReturn(Flux.just(
+                CommentSearchHit.builder().id("1").role("user").content("mongo").score(1.0f).build()));
+        // when, then
+        webTestClient.get().uri("/api/comment/search?q=mongo").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.comments[0].id").isEqualTo("1")
+                .jsonPath("$.comments[0].score").isEqualTo(1.0);
+    }
+
+    @Test
+    void findRollups() {
+        // given
+        when(reactiveCommentRollupService.find("user", Granularity.HOUR, null, null)).thenReturn(Flux.just(
+                CommentRollup.builder().role("user").granularity(Granularity.HOUR)
+                        .bucket(LocalDateTime.parse("2023-08-01T00:00:00")).count(5).build()));
+        // when, then
+        webTestClient.get().uri("/api/comment/rollups?role=user").accept(MediaType.APPLICATION_JSON).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.granularity").isEqualTo("HOUR")
+                .jsonPath("$.rollups[0].count").isEqualTo(5);
+    }
+
+    @Test
+    void rebuildRollups() {
+        // given
+        when(reactiveCommentRollupService.rebuild()).thenReturn(Mono.empty());
+        // when, then
+        webTestClient.post().uri("/api/comment/rollups/rebuild").exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Nested
+    class findRecent {
+        @Test
+        void OK() {
+            // given
+            when(reactiveCommentService.findRecent(20)).thenReturn(Flux.just(response2, response1));
+            // when, then
+            webTestClient.get().uri("/api/comment/recent").accept(MediaType.APPLICATION_JSON).exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.comments[0].id").isEqualTo("2")
+                    .jsonPath("$.comments[1].id").isEqualTo("1")
+                    .jsonPath("$.count").doesNotExist();
+        }
+
+        @Test
+        void 件数は容量までに制限する() {
+            // given
+            when(reactiveCommentService.findRecent(1000)).thenReturn(Flux.empty());
+            // when, then
+            webTestClient.get().uri("/api/comment/recent?limit=5000").accept(MediaType.APPLICATION_JSON).exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.comments").isEmpty();
+        }
+    }
+
+    @Nested
+    class changes {
+        @Test
+        void レジュームトークンをイベントIDにする() {
+            // given
+            when(commentChangeService.changes(null)).thenReturn(Flux.just(
+                    new CommentChange("token1", "insert", "1", comment1),
+                    new CommentChange("token2", "delete", "2", null)));
+            // when
+            Flux<ServerSentEvent<CommentChangeResponse>> body = webTestClient.get().uri("/api/comment/changes")
+                    .accept(MediaType.TEXT_EVENT_STREAM).exchange()
+                    .expectStatus().isOk()
+                    .returnResult(new ParameterizedTypeReference<ServerSentEvent<CommentChangeResponse>>() {
+                    }).getResponseBody();
+            // then
+            StepVerifier.create(body.filter(event -> event.event() != null))
+                    .assertNext(event -> {
+                        assertThat(event)
+                                .extracting(ServerSentEvent::id, ServerSentEvent::event)
+                                .containsExactly("token1", "insert");
+                        assertThat(event.data().getComment().getContent()).isEqualTo("こんにちは");
+                    })
+                    .assertNext(event -> {
+                        assertThat(event)
+                                .extracting(ServerSentEvent::id, ServerSentEvent::event)
+                                .containsExactly("token2", "delete");
+                        assertThat(event.data())
+                                .extracting(CommentChangeResponse::getId, CommentChangeResponse::getComment)
+                                .containsExactly("2", null);
+                    })
+                    .verifyComplete();
+        }
+
+        @Test
+        void LastEventIDから再開する() {
+            // given
+            when(commentChangeService.changes("token1")).thenReturn(Flux.just(CommentChange.RESET));
+            // when
+            Flux<ServerSentEvent<CommentChangeResponse>> body = webTestClient.get().uri("/api/comment/changes")
+                    .header("Last-Event-ID", "token1")
+                    .accept(MediaType.TEXT_EVENT_STREAM).exchange()
+                    .expectStatus().isOk()
+                    .returnResult(new ParameterizedTypeReference<ServerSentEvent<CommentChangeResponse>>() {
+                    }).getResponseBody();
+            // then
+            StepVerifier.create(body.filter(event -> event.event() != null).map(ServerSentEvent::event))
+                    .expectNext("reset")
+                    .verifyComplete();
+        }
+    }
+
+    @Nested
+    class findById {
+        @Test
+        void OK() {
+            // given
+            when(reactiveCommentService.findById("1")).thenReturn(Mono.just(comment1));
+            // when, then
+            webTestClient.get().uri("/api/comment/1").exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.id").isEqualTo("1")
+                    .jsonPath("$.content").isEqualTo("こんにちは");
+        }
+
+        @Test
+        void NOT_FOUND() {
+            // given
+            when(reactiveCommentService.findById("99")).thenReturn(Mono.empty());
+            // when, then
+            webTestClient.get().uri("/api/comment/99").exchange()
+                    .expectStatus().isNotFound();
+        }
+    }
+
+    @Test
+    void insert() {
+        // given
+        Map<String, String> commentRequestMap = new HashMap<>();
+        commentRequestMap.put("role", "user");
+        commentRequestMap.put("content", "こんにちは");
+        when(reactiveCommentService.save(any(Comment.class))).thenReturn(Mono.just(comment1));
+        // when, then
+        webTestClient.post().uri("/api/comment").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(commentRequestMap).exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1");
+    }
+
+    @Nested
+    class insertAsync {
+        @Test
+        void 受け付けたIDを202で返す() throws Exception {
+            // given
+            when(commentIngestService.submit(any(Comment.class), eq(WriteConcernMode.UNACKNOWLEDGED)))
+                    .thenReturn("1");
+            // when, then
+            webTestClient.post().uri("/api/comment/async?writeConcern=UNACKNOWLEDGED")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("role", "user", "content", "こんにちは")).exchange()
+                    .expectStatus().isAccepted()
+                    .expectBody()
+                    .jsonPath("$.id").isEqualTo("1")
+                    .jsonPath("$.writeConcern").isEqualTo("UNACKNOWLEDGED");
+        }
+
+        @Test
+        void キューが一杯なら503() throws Exception {
+            // given
+            when(commentIngestService.submit(any(Comment.class), any()))
+                    .thenThrow(new ServiceUnavailableException("コメントの受付が混み合っています。時間をおいて再度お試しください。"));
+            // when, then
+            webTestClient.post().uri("/api/comment/async")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("role", "user", "content", "こんにちは")).exchange()
+                    .expectStatus().isEqualTo(503);
+        }
+    }
+
+    @Test
+    void bulkInsert() {
+        // given
+        Map<String, Object> commentBulkRequestMap = Map.of("comments", List.of(
+                Map.of("role", "user", "content", "こんにちは"),
+                Map.of("id", "1", "role", "assistant", "content", "こんばんは")));
+        when(reactiveCommentService.bulkInsert(any())).thenReturn(Flux.just(
+                new BulkItemResult(0, "2", null),
+                new BulkItemResult(1, "1", "E11000 duplicate key error")));
+        // when, then
+        webTestClient.post().uri("/api/comment/bulk").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(commentBulkRequestMap).exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.inserted").isEqualTo(1)
+                .jsonPath("$.failed").isEqualTo(1)
+                .jsonPath("$.results[0].id").isEqualTo("2")
+                .jsonPath("$.results[0].inserted").isEqualTo(true)
+                .jsonPath("$.results[1].index").isEqualTo(1)
+                .jsonPath("$.results[1].inserted").isEqualTo(false)
+                .jsonPath("$.results[1].message").isEqualTo("E11000 duplicate key error");
+    }
+
+    @Nested
+    class update {
+        @Test
+        void OK() {
+            // given
+            Map<String, Object> commentRequestMap = new HashMap<>();
+            commentRequestMap.put("role", "user");
+            commentRequestMap.put("content", "こんばんは");
+            commentRequestMap.put("version", 1);
+            when(reactiveCommentService.update("1", 1L, "user", "こんばんは")).thenReturn(Mono.just(comment2));
+            // when, then
+            webTestClient.put().uri("/api/comment/1").contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(commentRequestMap).exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.content").isEqualTo("こんばんは");
+        }
+
+        @Test
+        void NOT_FOUND() {
+            // given
+            Map<String, String> commentRequestMap = new HashMap<>();
+            commentRequestMap.put("role", "user");
+            commentRequestMap.put("content", "こんばんは");
+            when(reactiveCommentService.update("99", null, "user", "こんばんは"))
+                    .thenReturn(Mono.error(new NotFoundException("IDが 99 のコメントは存在しません。")));
+            // when, then
+            webTestClient.put().uri("/api/comment/99").contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(commentRequestMap).exchange()
+                    .expectStatus().isNotFound()
+                    .expectBody()
+                    .jsonPath("$.message").isEqualTo("IDが 99 のコメントは存在しません。");
+        }
+
+        @Test
+        void CONFLICT() {
+            // given
+            Map<String, Object> commentRequestMap = new HashMap<>();
+            commentRequestMap.put("content", "こんばんは");
+            commentRequestMap.put("version", 0);
+            when(reactiveCommentService.patch("1", 0L, null, "こんばんは"))
+                    .thenReturn(Mono.error(new ConflictException("IDが 1 のコメントはバージョン 0 から更新されています。")));
+            // when, then
+            webTestClient.patch().uri("/api/comment/1").contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(commentRequestMap).exchange()
+                    .expectStatus().isEqualTo(409);
+        }
+    }
+
+    @Test
+    void deleteById() {
+        // given
+        when(reactiveCommentService.deleteById("1")).thenReturn(Mono.empty());
+        // when, then
+        webTestClient.delete().uri("/api/comment/1").exchange()
+                .expectStatus().isNoContent();
+    }
+}
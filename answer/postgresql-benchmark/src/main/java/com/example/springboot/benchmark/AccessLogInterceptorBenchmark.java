@@ -0,0 +1,54 @@
+package com.example.springboot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.example.springboot.interceptor.AccessLogInterceptor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 1 リクエストあたりに AccessLogInterceptor が追加する処理時間と割り当て量
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessLogInterceptorBenchmark {
+
+    @Param({ "0.0", "0.01", "1.0" })
+    private double sampleRate;
+
+    private AccessLogInterceptor accessLogInterceptor;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accessLogInterceptor = new AccessLogInterceptor(new SimpleMeterRegistry(), sampleRate);
+        request = new MockHttpServletRequest("GET", "/api/user/id/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/user/id/{id}");
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void handle() {
+        accessLogInterceptor.preHandle(request, response, null);
+        accessLogInterceptor.afterCompletion(request, response, null, null);
+    }
+}
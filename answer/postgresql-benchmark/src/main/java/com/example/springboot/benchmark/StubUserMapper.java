@@ -0,0 +1,86 @@
+package com.example.springboot.benchmark;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.apache.ibatis.cursor.Cursor;
+
+import com.example.springboot.persistence.entity.User;
+import com.example.springboot.persistence.mapper.UserMapper;
+
+// DB を使わずに、あらかじめ生成したユーザーを返す UserMapper
+// 参照系は固定データから返し、更新系は何もせずに件数だけ返す
+public class StubUserMapper implements UserMapper {
+
+    private final List<User> users;
+
+    public StubUserMapper(int rows) {
+        users = IntStream.rangeClosed(1, rows)
+                .mapToObj(i -> User.builder().id(i).name("user" + i).email("user%d@example.com".formatted(i)).build())
+                .toList();
+    }
+
+    @Override
+    public List<User> findAll() {
+        return users;
+    }
+
+    // カーソルは SqlSession がないと作れない
+    @Override
+    public Cursor<User> findAllAsCursor() {
+        throw new UnsupportedOperationException("findAllAsCursor");
+    }
+
+    @Override
+    public List<User> findPage(int after, int limit) {
+        int from = Math.min(Math.max(after, 0), users.size());
+        return users.subList(from, Math.min(from + limit, users.size()));
+    }
+
+    @Override
+    public User findById(Integer id) {
+        return id >= 1 && id <= users.size() ? users.get(id - 1) : null;
+    }
+
+    @Override
+    public User findByEmail(String email) {
+        return users.stream().filter(user -> user.getEmail().equals(email)).findFirst().orElse(null);
+    }
+
+    @Override
+    public List<User> searchByPrefix(String prefix, int limit) {
+        String start = prefix.endsWith("%") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        return users.stream()
+                .filter(user -> user.getName().startsWith(start) || user.getEmail().startsWith(start))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void insert(User users) {
+    }
+
+    @Override
+    public void insertAll(List<User> users) {
+    }
+
+    @Override
+    public int update(User users) {
+        return findById(users.getId()) == null ? 0 : 1;
+    }
+
+    @Override
+    public int updateAll(List<User> users) {
+        return (int) users.stream().filter(user -> findById(user.getId()) != null).count();
+    }
+
+    @Override
+    public int deleteById(Integer id) {
+        return findById(id) == null ? 0 : 1;
+    }
+
+    @Override
+    public int deleteAllById(List<Integer> ids) {
+        return (int) ids.stream().filter(id -> findById(id) != null).count();
+    }
+}
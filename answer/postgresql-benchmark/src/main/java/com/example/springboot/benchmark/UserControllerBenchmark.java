@@ -0,0 +1,91 @@
+package com.example.springboot.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.springboot.exception.exceptions.NotFoundException;
+import com.example.springboot.persistence.mapper.UserMapper;
+import com.example.springboot.service.UserService;
+import com.example.springboot.web.controller.UserController;
+import com.example.springboot.web.response.UserIndexResponse;
+import com.example.springboot.web.response.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserControllerBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int rows;
+
+    private AnnotationConfigApplicationContext context;
+    private UserController userController;
+    private ObjectMapper objectMapper;
+    private UserIndexResponse userIndexResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        context = new AnnotationConfigApplicationContext();
+        // 上限で切り詰められないように、取得件数の上限を rows に合わせる
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark",
+                Map.of("user.pagination.max-limit", rows)));
+        context.registerBean(UserMapper.class, () -> new StubUserMapper(rows));
+        context.register(UserService.class);
+        context.registerBean(ObjectMapper.class, () -> objectMapper);
+        context.register(UserController.class);
+        context.refresh();
+        userController = context.getBean(UserController.class);
+        userIndexResponse = userController.index(null, rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // User → UserResponse の変換と UserIndexResponse の組み立て
+    @Benchmark
+    public UserIndexResponse index() {
+        return userController.index(null, rows);
+    }
+
+    @Benchmark
+    public void serializeIndex() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), userIndexResponse);
+    }
+
+    @Benchmark
+    public void indexAndSerialize() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), userController.index(null, rows));
+    }
+
+    @Benchmark
+    public void findByIdAndSerialize() throws IOException, NotFoundException {
+        UserResponse userResponse = userController.findById(null, rows);
+        objectMapper.writeValue(OutputStream.nullOutputStream(), userResponse);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.springboot.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.springboot.web.request.UserRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserRequestBenchmark {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectReader reader = objectMapper.readerFor(UserRequest.class);
+    private final byte[] body = """
+            {"name":"太郎","email":"xxx@example.com"}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    @Benchmark
+    public UserRequest deserialize() throws IOException {
+        return objectMapper.readValue(body, UserRequest.class);
+    }
+
+    @Benchmark
+    public UserRequest deserializeWithReader() throws IOException {
+        return reader.readValue(body);
+    }
+}
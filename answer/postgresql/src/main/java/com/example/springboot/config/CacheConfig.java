@@ -0,0 +1,11 @@
+package com.example.springboot.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// トランザクションの外側でキャッシュを破棄するため、トランザクション (LOWEST_PRECEDENCE) より先に適用する
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+}
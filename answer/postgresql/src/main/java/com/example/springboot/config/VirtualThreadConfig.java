@@ -0,0 +1,52 @@
+package com.example.springboot.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    // コンテキスト終了時に実行中のリクエストを待ってから閉じる
+    @Bean(destroyMethod = "close")
+    public ExecutorService virtualThreadExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer(ExecutorService virtualThreadExecutor,
+            @Value("${virtual-threads.max-concurrency}") int maxConcurrency) {
+        Executor executor = bulkhead(virtualThreadExecutor, maxConcurrency);
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    // 仮想スレッドには上限がないので、同時に処理するリクエスト数をセマフォで制限する
+    static Executor bulkhead(Executor executor, int maxConcurrency) {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        return task -> executor.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    // Java 17 でもビルドできるように、Java 21 の API はリフレクションで呼び出す
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual-threads.enabled には Java 21 以上が必要です。", e);
+        }
+    }
+}
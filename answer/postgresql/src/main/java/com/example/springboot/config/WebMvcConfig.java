@@ -1,6 +1,6 @@
 package com.example.springboot.config;
 
-import com.example.springboot.interceptor.MethodInterceptor;
+import com.example.springboot.interceptor.AccessLogInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -11,7 +11,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebMvcConfig implements WebMvcConfigurer {
 
     @Autowired
-    MethodInterceptor methodInterceptor;
+    AccessLogInterceptor accessLogInterceptor;
 
     @Override
     public void addCorsMappings(CorsRegistry registry) {
@@ -25,6 +25,6 @@ public class WebMvcConfig implements WebMvcConfigurer {
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        registry.addInterceptor(methodInterceptor);
+        registry.addInterceptor(accessLogInterceptor);
     }
 }
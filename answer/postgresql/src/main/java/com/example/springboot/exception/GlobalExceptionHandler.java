@@ -1,10 +1,13 @@
 package com.example.springboot.exception;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import com.example.springboot.exception.exceptions.BadRequestException;
 import com.example.springboot.exception.exceptions.NotFoundException;
 import com.example.springboot.web.response.ErrorResponse;
 
@@ -18,4 +21,29 @@ public class GlobalExceptionHandler {
                 .message(e.getMessage())
                 .build();
     }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleBadRequestException(BadRequestException e) {
+        return ErrorResponse.builder()
+                .message(e.getMessage())
+                .build();
+    }
+
+    // UserBatchRequest の @NotNull。フィールドは creates[0] のように要素の位置まで示す
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
+        return ErrorResponse.builder()
+                .message("%s は null にできません。".formatted(e.getFieldError().getField()))
+                .build();
+    }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleDuplicateKeyException(DuplicateKeyException e) {
+        return ErrorResponse.builder()
+                .message("メールアドレスが既に登録されています。")
+                .build();
+    }
 }
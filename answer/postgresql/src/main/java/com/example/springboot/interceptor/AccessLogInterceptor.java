@@ -0,0 +1,80 @@
+package com.example.springboot.interceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@Component
+public class AccessLogInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = AccessLogInterceptor.class.getName() + ".start";
+
+    private final Logger logger = LoggerFactory.getLogger("access");
+    private final MeterRegistry meterRegistry;
+    private final double sampleRate;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public AccessLogInterceptor(MeterRegistry meterRegistry,
+            @Value("${access-log.sample-rate:1.0}") double sampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    // 例外で終わったリクエストも記録するため、postHandle ではなく afterCompletion で計測する
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (!(request.getAttribute(START_ATTRIBUTE) instanceof Long start)) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern == null ? "UNKNOWN" : pattern.toString();
+        // 解決されなかった例外は、この後 500 で応答される
+        int status = ex == null ? response.getStatus() : 500;
+        Object exception = ex != null ? ex : request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
+        String exceptionName = exception == null ? "none" : exception.getClass().getSimpleName();
+
+        timers.computeIfAbsent(new TimerKey(request.getMethod(), route, status, exceptionName), this::register)
+                .record(duration, TimeUnit.NANOSECONDS);
+
+        // サーバーエラーはサンプリングせずに必ず出力する
+        if (logger.isInfoEnabled() && (status >= 500 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            logger.info("method={} route={} uri={} status={} exception={} duration_us={}", request.getMethod(), route,
+                    request.getRequestURI(), status, exceptionName, duration / 1000);
+        }
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder("http.handler")
+                .description("Handler latency per route pattern")
+                .tag("method", key.method())
+                .tag("route", key.route())
+                .tag("status", String.valueOf(key.status()))
+                .tag("exception", key.exception())
+                .register(meterRegistry);
+    }
+
+    private record TimerKey(String method, String route, int status, String exception) {
+    }
+}
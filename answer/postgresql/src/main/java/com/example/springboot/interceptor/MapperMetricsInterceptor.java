@@ -0,0 +1,88 @@
+package com.example.springboot.interceptor;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class }),
+        @Signature(type = Executor.class, method = "query",
+                args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class,
+                        BoundSql.class }),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = { MappedStatement.class, Object.class, RowBounds.class }),
+        @Signature(type = Executor.class, method = "update", args = { MappedStatement.class, Object.class }) })
+public class MapperMetricsInterceptor implements Interceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public MapperMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        Meters statementMeters = meters.computeIfAbsent(mappedStatement.getId(), id -> register(mappedStatement));
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } finally {
+            statementMeters.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            // カーソルは取得した時点では件数が分からないため記録しない
+            if (result instanceof Collection<?> collection) {
+                statementMeters.rows().record(collection.size());
+            } else if (result instanceof Integer count) {
+                statementMeters.rows().record(count);
+            }
+        }
+    }
+
+    private Meters register(MappedStatement mappedStatement) {
+        String statement = shorten(mappedStatement.getId());
+        String command = mappedStatement.getSqlCommandType().name();
+        return new Meters(
+                Timer.builder("mybatis.statement")
+                        .description("Execution time of MyBatis mapped statements")
+                        .tag("statement", statement)
+                        .tag("command", command)
+                        .register(meterRegistry),
+                DistributionSummary.builder("mybatis.statement.rows")
+                        .description("Rows returned or affected by MyBatis mapped statements")
+                        .tag("statement", statement)
+                        .tag("command", command)
+                        .register(meterRegistry));
+    }
+
+    // com.example.springboot.persistence.mapper.UserMapper.findById → UserMapper.findById
+    private static String shorten(String id) {
+        int method = id.lastIndexOf('.');
+        int type = id.lastIndexOf('.', method - 1);
+        return id.substring(type + 1);
+    }
+
+    private record Meters(Timer timer, DistributionSummary rows) {
+    }
+}
@@ -6,8 +6,10 @@ import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
 
 import com.example.springboot.persistence.entity.User;
 
@@ -17,16 +19,49 @@ public interface UserMapper {
     @Select("SELECT * FROM users;")
     List<User> findAll();
 
+    @Select("SELECT * FROM users ORDER BY id;")
+    @Options(fetchSize = 1000)
+    Cursor<User> findAllAsCursor();
+
+    @Select("SELECT * FROM users WHERE id > #{after} ORDER BY id LIMIT #{limit};")
+    List<User> findPage(@Param("after") int after, @Param("limit") int limit);
+
     @Select("SELECT * FROM users WHERE id = #{id};")
     User findById(Integer id);
 
+    @Select("SELECT * FROM users WHERE email = #{email};")
+    User findByEmail(String email);
+
+    @Select("SELECT * FROM users WHERE name LIKE #{prefix} OR email LIKE #{prefix} ORDER BY id LIMIT #{limit};")
+    List<User> searchByPrefix(@Param("prefix") String prefix, @Param("limit") int limit);
+
     @Insert("INSERT INTO users(name, email) VALUES(#{name}, #{email});")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(User users);
 
+    @Insert({"<script>",
+            "INSERT INTO users(name, email) VALUES",
+            "<foreach collection='list' item='user' separator=','>(#{user.name}, #{user.email})</foreach>;",
+            "</script>"})
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    void insertAll(List<User> users);
+
     @Update("UPDATE users SET name = #{name}, email = #{email} WHERE id = #{id};")
-    void update(User users);
+    int update(User users);
+
+    @Update({"<script>",
+            "UPDATE users AS u SET name = v.name, email = v.email FROM (VALUES",
+            "<foreach collection='list' item='user' separator=','>(#{user.id}, #{user.name}, #{user.email})</foreach>",
+            ") AS v(id, name, email) WHERE u.id = v.id;",
+            "</script>"})
+    int updateAll(List<User> users);
 
     @Delete("DELETE FROM users WHERE id = #{id};")
-    void deleteById(Integer id);
+    int deleteById(Integer id);
+
+    @Delete({"<script>",
+            "DELETE FROM users WHERE id IN",
+            "<foreach collection='list' item='id' open='(' separator=',' close=')'>#{id}</foreach>;",
+            "</script>"})
+    int deleteAllById(List<Integer> ids);
 }
@@ -1,10 +1,19 @@
 package com.example.springboot.service;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.springboot.exception.exceptions.BadRequestException;
 import com.example.springboot.exception.exceptions.NotFoundException;
 import com.example.springboot.persistence.entity.User;
 import com.example.springboot.persistence.mapper.UserMapper;
@@ -12,6 +21,9 @@ import com.example.springboot.persistence.mapper.UserMapper;
 @Service
 public class UserService {
 
+    // 1 文あたりのバインド変数が PostgreSQL JDBC の上限を超えないように分割する
+    private static final int BATCH_CHUNK_SIZE = 1000;
+
     @Autowired
     private UserMapper userMapper;
 
@@ -19,6 +31,18 @@ public class UserService {
         return userMapper.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<User> consumer) throws IOException {
+        try (Cursor<User> cursor = userMapper.findAllAsCursor()) {
+            cursor.forEach(consumer);
+        }
+    }
+
+    public List<User> findPage(Integer after, int limit) {
+        return userMapper.findPage(after == null ? 0 : after, limit);
+    }
+
+    @Cacheable(cacheNames = "users", key = "#id")
     public User findById(Integer id) throws NotFoundException {
         User user = userMapper.findById(id);
         if (user == null) {
@@ -27,18 +51,81 @@ public class UserService {
         return user;
     }
 
+    public User findByEmail(String email) throws NotFoundException {
+        User user = userMapper.findByEmail(email);
+        if (user == null) {
+            throw new NotFoundException("メールアドレスが %s のユーザーは存在しません。".formatted(email));
+        }
+        return user;
+    }
+
+    public List<User> search(String query, int limit) {
+        String escaped = query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return userMapper.searchByPrefix(escaped + "%", limit);
+    }
+
     public void insert(User user) {
         userMapper.insert(user);
     }
 
-    public void update(User user) {
-        userMapper.update(user);
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "users", key = "#user.id", beforeInvocation = true),
+            @CacheEvict(cacheNames = "users", key = "#user.id") })
+    public void update(User user) throws NotFoundException {
+        if (userMapper.update(user) == 0) {
+            throw new NotFoundException("IDが %s のユーザーは存在しません。".formatted(user.getId()));
+        }
     }
 
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "users", allEntries = true, beforeInvocation = true),
+            @CacheEvict(cacheNames = "users", allEntries = true) })
+    @Transactional(rollbackFor = NotFoundException.class)
+    public BatchResult batch(List<User> creates, List<User> updates, List<Integer> deletes)
+            throws NotFoundException, BadRequestException {
+        // 同じ ID の更新が複数あると、どれが反映されるか決まらない
+        if (updates.stream().map(User::getId).distinct().count() != updates.size()) {
+            throw new BadRequestException("更新対象に同じIDのユーザーが複数含まれています。");
+        }
+        // 削除は重複しても結果が変わらないため、まとめてから分割する。別のチャンクに入ると件数が合わなくなる
+        List<Integer> distinctDeletes = deletes.stream().distinct().toList();
+        for (List<User> chunk : chunks(creates)) {
+            userMapper.insertAll(chunk);
+        }
+        int updated = 0;
+        for (List<User> chunk : chunks(updates)) {
+            updated += userMapper.updateAll(chunk);
+        }
+        if (updated != updates.size()) {
+            throw new NotFoundException("更新対象に存在しないユーザーが含まれています。");
+        }
+        int deleted = 0;
+        for (List<Integer> chunk : chunks(distinctDeletes)) {
+            deleted += userMapper.deleteAllById(chunk);
+        }
+        if (deleted != distinctDeletes.size()) {
+            throw new NotFoundException("削除対象に存在しないユーザーが含まれています。");
+        }
+        return new BatchResult(creates.stream().map(User::getId).toList(), updated, deleted);
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "users", key = "#id", beforeInvocation = true),
+            @CacheEvict(cacheNames = "users", key = "#id") })
     public void deleteById(Integer id) throws NotFoundException {
-        if (userMapper.findById(id) == null) {
+        if (userMapper.deleteById(id) == 0) {
             throw new NotFoundException("IDが %s のユーザーは存在しません。".formatted(id));
         }
-        userMapper.deleteById(id);
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += BATCH_CHUNK_SIZE) {
+            chunks.add(list.subList(from, Math.min(from + BATCH_CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
+
+    public record BatchResult(List<Integer> created, int updated, int deleted) {
     }
 }
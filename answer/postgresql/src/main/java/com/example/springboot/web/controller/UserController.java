@@ -1,9 +1,13 @@
 package com.example.springboot.web.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -11,17 +15,27 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.springboot.exception.exceptions.BadRequestException;
 import com.example.springboot.exception.exceptions.NotFoundException;
 import com.example.springboot.persistence.entity.User;
 import com.example.springboot.service.UserService;
+import com.example.springboot.service.UserService.BatchResult;
+import com.example.springboot.web.request.UserBatchRequest;
 import com.example.springboot.web.request.UserRequest;
+import com.example.springboot.web.response.UserBatchResponse;
 import com.example.springboot.web.response.UserIndexResponse;
 import com.example.springboot.web.response.UserResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 
 @RestController
 @RequestMapping("/api/user")
@@ -30,27 +44,65 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${user.pagination.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${user.pagination.max-limit:1000}")
+    private int maxLimit;
+
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public UserIndexResponse index() {
-        List<User> userList = userService.findAll();
-        return UserIndexResponse.builder().data(
-                userList.stream().map(user -> UserResponse.builder()
-                        .id(user.getId())
-                        .name(user.getName())
-                        .email(user.getEmail())
-                        .build()).toList())
+    public UserIndexResponse index(@RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize = Math.max(1, Math.min(limit == null ? defaultLimit : limit, maxLimit));
+        // 1 件多く取得して次ページの有無を判定する
+        List<User> userList = userService.findPage(after, pageSize + 1);
+        boolean hasNext = userList.size() > pageSize;
+        List<User> page = hasNext ? userList.subList(0, pageSize) : userList;
+        return UserIndexResponse.builder()
+                .data(page.stream().map(this::map).toList())
+                .next(hasNext ? page.get(pageSize - 1).getId() : null)
                 .build();
     }
 
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void export(HttpServletResponse httpServletResponse) throws IOException {
+        httpServletResponse.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        ObjectWriter writer = objectMapper.writerFor(UserResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(httpServletResponse.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            userService.exportAll(user -> {
+                try {
+                    writer.writeValue(generator, map(user));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
     @GetMapping("/id/{id}")
     public UserResponse findById(HttpServletResponse httpServletResponse, @PathVariable Integer id)
             throws NotFoundException {
-        User user = userService.findById(id);
-        return UserResponse.builder()
-                .id(user.getId())
-                .name(user.getName())
-                .email(user.getEmail())
+        return map(userService.findById(id));
+    }
+
+    @GetMapping("/email/{email}")
+    public UserResponse findByEmail(@PathVariable String email) throws NotFoundException {
+        return map(userService.findByEmail(email));
+    }
+
+    @GetMapping("/search")
+    @ResponseStatus(HttpStatus.OK)
+    public UserIndexResponse search(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        int pageSize = Math.max(1, Math.min(limit == null ? defaultLimit : limit, maxLimit));
+        return UserIndexResponse.builder()
+                .data(userService.search(q, pageSize).stream().map(this::map).toList())
                 .build();
     }
 
@@ -62,9 +114,29 @@ public class UserController {
         httpServletResponse.setHeader("Location", "/api/user/%d".formatted(user.getId()));
     }
 
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public UserBatchResponse batch(@Valid @RequestBody UserBatchRequest userBatchRequest)
+            throws NotFoundException, BadRequestException {
+        BatchResult result = userService.batch(
+                userBatchRequest.getCreates().stream()
+                        .map(request -> User.builder().name(request.getName()).email(request.getEmail()).build())
+                        .toList(),
+                userBatchRequest.getUpdates().stream()
+                        .map(request -> User.builder().id(request.getId()).name(request.getName())
+                                .email(request.getEmail()).build())
+                        .toList(),
+                userBatchRequest.getDeletes());
+        return UserBatchResponse.builder()
+                .created(result.created())
+                .updated(result.updated())
+                .deleted(result.deleted())
+                .build();
+    }
+
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void update(@PathVariable Integer id, @RequestBody UserRequest userRequest) {
+    public void update(@PathVariable Integer id, @RequestBody UserRequest userRequest) throws NotFoundException {
         userService.update(User.builder().id(id).name(userRequest.getName()).email(userRequest.getEmail()).build());
     }
 
@@ -73,4 +145,12 @@ public class UserController {
     public void deleteById(@PathVariable Integer id) throws NotFoundException {
         userService.deleteById(id);
     }
+
+    private UserResponse map(User user) {
+        return UserResponse.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .build();
+    }
 }
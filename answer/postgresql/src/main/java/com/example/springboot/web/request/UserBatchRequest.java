@@ -0,0 +1,21 @@
+package com.example.springboot.web.request;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class UserBatchRequest {
+    // 省略した場合は空。JSON で明示した null と、null の要素は 400 にする
+    @NotNull
+    private List<@NotNull @Valid UserRequest> creates = List.of();
+    @NotNull
+    private List<@NotNull @Valid UserBatchUpdateRequest> updates = List.of();
+    @NotNull
+    private List<@NotNull Integer> deletes = List.of();
+}
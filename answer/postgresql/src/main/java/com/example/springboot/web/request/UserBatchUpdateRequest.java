@@ -0,0 +1,15 @@
+package com.example.springboot.web.request;
+
+import jakarta.validation.constraints.NotNull;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class UserBatchUpdateRequest {
+    @NotNull
+    private Integer id;
+    private String name;
+    private String email;
+}
@@ -0,0 +1,15 @@
+package com.example.springboot.web.response;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class UserBatchResponse {
+
+    private List<Integer> created;
+    private Integer updated;
+    private Integer deleted;
+}
@@ -11,4 +11,5 @@ import lombok.Getter;
 public class UserIndexResponse {
 
     private List<UserResponse> data;
+    private Integer next;
 }
@@ -0,0 +1,3 @@
+-- varchar_pattern_ops は等価検索と LIKE 'xxx%' の前方一致検索の両方に使える
+CREATE UNIQUE INDEX users_email_key ON users (email varchar_pattern_ops);
+CREATE INDEX users_name_pattern_idx ON users (name varchar_pattern_ops);
@@ -0,0 +1,80 @@
+package com.example.springboot.interceptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.example.springboot.exception.exceptions.NotFoundException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AccessLogInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AccessLogInterceptor accessLogInterceptor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        accessLogInterceptor = new AccessLogInterceptor(meterRegistry, 0.0);
+    }
+
+    @Test
+    void ルートパターンごとに記録する() {
+        // given
+        MockHttpServletRequest request = request("/api/user/id/1");
+        MockHttpServletRequest other = request("/api/user/id/2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // when
+        accessLogInterceptor.preHandle(request, response, null);
+        accessLogInterceptor.afterCompletion(request, response, null, null);
+        accessLogInterceptor.preHandle(other, response, null);
+        accessLogInterceptor.afterCompletion(other, response, null, null);
+        // then
+        assertThat(meterRegistry.get("http.handler")
+                .tag("method", "GET").tag("route", "/api/user/id/{id}").tag("status", "200")
+                .tag("exception", "none").timer().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void 例外ハンドラで処理された例外を記録する() {
+        // given
+        MockHttpServletRequest request = request("/api/user/id/99");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        request.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE, new NotFoundException("not found"));
+        response.setStatus(404);
+        // when
+        accessLogInterceptor.preHandle(request, response, null);
+        accessLogInterceptor.afterCompletion(request, response, null, null);
+        // then
+        assertThat(meterRegistry.get("http.handler")
+                .tag("status", "404").tag("exception", "NotFoundException").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void 処理されなかった例外は500として記録する() {
+        // given
+        MockHttpServletRequest request = request("/api/user/id/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // when
+        accessLogInterceptor.preHandle(request, response, null);
+        accessLogInterceptor.afterCompletion(request, response, null, new IllegalStateException());
+        // then
+        assertThat(meterRegistry.get("http.handler")
+                .tag("status", "500").tag("exception", "IllegalStateException").timer().count())
+                .isEqualTo(1);
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/user/id/{id}");
+        return request;
+    }
+}
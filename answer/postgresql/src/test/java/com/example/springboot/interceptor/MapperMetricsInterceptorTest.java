@@ -0,0 +1,86 @@
+package com.example.springboot.interceptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MapperMetricsInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MapperMetricsInterceptor mapperMetricsInterceptor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        mapperMetricsInterceptor = new MapperMetricsInterceptor(meterRegistry);
+    }
+
+    @Test
+    void 取得件数と実行時間を記録する() throws Throwable {
+        // given
+        Invocation invocation = invocation("findAll", SqlCommandType.SELECT);
+        when(invocation.proceed()).thenReturn(List.of("a", "b", "c"));
+        // when
+        mapperMetricsInterceptor.intercept(invocation);
+        mapperMetricsInterceptor.intercept(invocation);
+        // then
+        Timer timer = meterRegistry.get("mybatis.statement")
+                .tag("statement", "UserMapper.findAll").tag("command", "SELECT").timer();
+        DistributionSummary rows = meterRegistry.get("mybatis.statement.rows")
+                .tag("statement", "UserMapper.findAll").summary();
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(rows.count()).isEqualTo(2);
+        assertThat(rows.totalAmount()).isEqualTo(6);
+    }
+
+    @Test
+    void 更新件数を記録する() throws Throwable {
+        // given
+        Invocation invocation = invocation("update", SqlCommandType.UPDATE);
+        when(invocation.proceed()).thenReturn(1);
+        // when
+        mapperMetricsInterceptor.intercept(invocation);
+        // then
+        assertThat(meterRegistry.get("mybatis.statement.rows")
+                .tag("statement", "UserMapper.update").tag("command", "UPDATE").summary().totalAmount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void 例外でも実行時間を記録する() throws Throwable {
+        // given
+        Invocation invocation = invocation("insert", SqlCommandType.INSERT);
+        when(invocation.proceed()).thenThrow(new PersistenceException());
+        // when
+        assertThrows(PersistenceException.class, () -> mapperMetricsInterceptor.intercept(invocation));
+        // then
+        assertThat(meterRegistry.get("mybatis.statement").tag("statement", "UserMapper.insert").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("mybatis.statement.rows").tag("statement", "UserMapper.insert").summary()
+                .count()).isZero();
+    }
+
+    private static Invocation invocation(String method, SqlCommandType sqlCommandType) {
+        MappedStatement mappedStatement = new MappedStatement.Builder(new Configuration(),
+                "com.example.springboot.persistence.mapper.UserMapper." + method, parameterObject -> null,
+                sqlCommandType).build();
+        Invocation invocation = mock(Invocation.class);
+        when(invocation.getArgs()).thenReturn(new Object[] { mappedStatement, null });
+        return invocation;
+    }
+}
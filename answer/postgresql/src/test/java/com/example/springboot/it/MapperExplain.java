@@ -0,0 +1,30 @@
+package com.example.springboot.it;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.springboot.persistence.mapper.UserMapper;
+
+// UserMapper が実際に発行する SQL とパラメータで EXPLAIN する
+final class MapperExplain {
+
+    private MapperExplain() {
+    }
+
+    static String explain(SqlSessionFactory sqlSessionFactory, JdbcTemplate jdbcTemplate, String statement,
+            Object parameter) {
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        BoundSql boundSql = configuration.getMappedStatement(UserMapper.class.getName() + "." + statement)
+                .getBoundSql(parameter);
+        MetaObject metaObject = configuration.newMetaObject(parameter);
+        Object[] args = boundSql.getParameterMappings().stream()
+                .map(mapping -> configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())
+                        ? parameter
+                        : metaObject.getValue(mapping.getProperty()))
+                .toArray();
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + boundSql.getSql(), String.class, args));
+    }
+}
@@ -31,6 +31,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 @SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @TestClassOrder(ClassOrderer.OrderAnnotation.class)
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -40,6 +43,8 @@ class UserApiTest {
     private TestRestTemplate restTemplate;
     @Autowired
     private ObjectMapper mapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
     private final HttpHeaders httpHeaders = new HttpHeaders();
 
     @BeforeAll
@@ -115,6 +120,74 @@ class UserApiTest {
 
     @Nested
     @Order(2)
+    class Metrics {
+        @Test
+        void ヒット数がactuatorに公開される() throws JsonProcessingException {
+            // given
+            restTemplate.exchange("/api/user/id/1", HttpMethod.GET, new HttpEntity<>(httpHeaders), UserResponse.class);
+            restTemplate.exchange("/api/user/id/1", HttpMethod.GET, new HttpEntity<>(httpHeaders), UserResponse.class);
+            // when
+            ResponseEntity<String> responseEntity = restTemplate.exchange(
+                    "/actuator/metrics/cache.gets?tag=name:users&tag=result:hit", HttpMethod.GET,
+                    new HttpEntity<>(httpHeaders), String.class);
+            // then
+            assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+            assertThat(mapper.readTree(responseEntity.getBody()).at("/measurements/0/value").asDouble())
+                    .isGreaterThanOrEqualTo(1.0);
+        }
+
+        @Test
+        void ハンドラの処理時間がルートとステータスごとにactuatorに公開される() throws JsonProcessingException {
+            // given
+            restTemplate.exchange("/api/user/id/1", HttpMethod.GET, new HttpEntity<>(httpHeaders), UserResponse.class);
+            restTemplate.exchange("/api/user/id/99", HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class);
+            // when
+            ResponseEntity<String> ok = restTemplate.exchange(
+                    "/actuator/metrics/http.handler?tag=method:GET&tag=route:{route}&tag=status:200", HttpMethod.GET,
+                    new HttpEntity<>(httpHeaders), String.class, "/api/user/id/{id}");
+            ResponseEntity<String> notFound = restTemplate.exchange(
+                    "/actuator/metrics/http.handler?tag=route:{route}&tag=status:404&tag=exception:NotFoundException",
+                    HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class, "/api/user/id/{id}");
+            // then
+            assertThat(ok.getStatusCode().value()).isEqualTo(200);
+            assertThat(mapper.readTree(ok.getBody()).at("/measurements/0/value").asDouble())
+                    .isGreaterThanOrEqualTo(1.0);
+            assertThat(notFound.getStatusCode().value()).isEqualTo(200);
+            assertThat(mapper.readTree(notFound.getBody()).at("/measurements/0/value").asDouble())
+                    .isGreaterThanOrEqualTo(1.0);
+        }
+
+        @Test
+        void SQLの実行時間がactuatorに公開される() throws JsonProcessingException {
+            // given
+            restTemplate.exchange("/api/user", HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class);
+            // when
+            ResponseEntity<String> responseEntity = restTemplate.exchange(
+                    "/actuator/metrics/mybatis.statement?tag=statement:UserMapper.findPage", HttpMethod.GET,
+                    new HttpEntity<>(httpHeaders), String.class);
+            // then
+            assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+            assertThat(mapper.readTree(responseEntity.getBody()).at("/measurements/0/value").asDouble())
+                    .isGreaterThanOrEqualTo(1.0);
+        }
+
+        @Test
+        void コネクションの取得待ちと使用時間がヒストグラム付きで公開される() {
+            // given
+            restTemplate.exchange("/api/user", HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class);
+            // when
+            Timer acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+            Timer usage = meterRegistry.get("hikaricp.connections.usage").timer();
+            // then
+            assertThat(acquire.count()).isGreaterThanOrEqualTo(1);
+            assertThat(acquire.takeSnapshot().histogramCounts()).isNotEmpty();
+            assertThat(usage.count()).isGreaterThanOrEqualTo(1);
+            assertThat(usage.takeSnapshot().histogramCounts()).isNotEmpty();
+        }
+    }
+
+    @Nested
+    @Order(3)
     class Insert {
         @Test
         void success() {
@@ -138,7 +211,7 @@ class UserApiTest {
     }
 
     @Nested
-    @Order(3)
+    @Order(4)
     class Update {
         @Test
         void success() {
@@ -157,10 +230,26 @@ class UserApiTest {
                     .extracting(UserResponse::getId, UserResponse::getName, UserResponse::getEmail)
                     .containsExactly(3, "三郎次郎太郎", "aaa@example.com");
         }
+
+        @Test
+        void 存在しないレコード() throws JsonProcessingException {
+            // given
+            Map<String, String> userRequestMap = new HashMap<>();
+            userRequestMap.put("name", "九十九郎");
+            userRequestMap.put("email", "bbb@example.com");
+            // when
+            ResponseEntity<String> responseEntity = restTemplate.exchange("/api/user/99", HttpMethod.PUT,
+                    new HttpEntity<>(userRequestMap, httpHeaders), String.class);
+            // then
+            Map<String, String> body = mapper.readValue(responseEntity.getBody(), new TypeReference<>() {
+            });
+            assertThat(responseEntity.getStatusCode().value()).isEqualTo(404);
+            assertThat(body.get("message")).isEqualTo("IDが 99 のユーザーは存在しません。");
+        }
     }
 
     @Nested
-    @Order(4)
+    @Order(5)
     class DeleteById {
         @Test
         void success() throws JsonProcessingException {
@@ -0,0 +1,156 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestExecutionListeners.MergeMode;
+
+import com.example.springboot.Application;
+import com.example.springboot.listener.FlywayTestExecutionListener;
+import com.example.springboot.web.response.UserBatchResponse;
+import com.example.springboot.web.response.UserResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestExecutionListeners(listeners = { FlywayTestExecutionListener.class }, mergeMode = MergeMode.MERGE_WITH_DEFAULTS)
+class UserBatchTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeAll
+    void setUp() {
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+    }
+
+    @Nested
+    @Order(1)
+    class Batch {
+        @Test
+        void success() {
+            // given
+            Map<String, Object> batchRequestMap = new HashMap<>();
+            batchRequestMap.put("creates", List.of(
+                    Map.of("name", "四郎", "email", "www@example.com"),
+                    Map.of("name", "五郎", "email", "vvv@example.com")));
+            batchRequestMap.put("updates", List.of(Map.of("id", 1, "name", "太郎太郎", "email", "aaa@example.com")));
+            batchRequestMap.put("deletes", List.of(2));
+            // when
+            ResponseEntity<UserBatchResponse> responseEntity = restTemplate.exchange("/api/user/batch",
+                    HttpMethod.POST, new HttpEntity<>(batchRequestMap, httpHeaders), UserBatchResponse.class);
+            // then
+            assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+            assertThat(responseEntity.getBody().getCreated()).containsExactly(4, 5);
+            assertThat(responseEntity.getBody())
+                    .extracting(UserBatchResponse::getUpdated, UserBatchResponse::getDeleted)
+                    .containsExactly(1, 1);
+            assertThat(find(1).getBody())
+                    .extracting(UserResponse::getId, UserResponse::getName, UserResponse::getEmail)
+                    .containsExactly(1, "太郎太郎", "aaa@example.com");
+            assertThat(find(2).getStatusCode().value()).isEqualTo(404);
+            assertThat(find(5).getBody())
+                    .extracting(UserResponse::getId, UserResponse::getName, UserResponse::getEmail)
+                    .containsExactly(5, "五郎", "vvv@example.com");
+        }
+
+        @Test
+        void 存在しないユーザーを含むとロールバックする() {
+            // given
+            Integer before = jdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class);
+            Map<String, Object> batchRequestMap = new HashMap<>();
+            batchRequestMap.put("creates", List.of(Map.of("name", "六郎", "email", "uuu@example.com")));
+            batchRequestMap.put("deletes", List.of(99));
+            // when
+            ResponseEntity<String> responseEntity = restTemplate.exchange("/api/user/batch", HttpMethod.POST,
+                    new HttpEntity<>(batchRequestMap, httpHeaders), String.class);
+            // then
+            assertThat(responseEntity.getStatusCode().value()).isEqualTo(404);
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM users", Integer.class)).isEqualTo(before);
+        }
+
+        @Test
+        void 同じIDの更新が複数あると400() {
+            // given
+            Map<String, Object> batchRequestMap = new HashMap<>();
+            batchRequestMap.put("updates", List.of(
+                    Map.of("id", 1, "name", "太郎", "email", "xxx@example.com"),
+                    Map.of("id", 1, "name", "太郎太郎", "email", "aaa@example.com")));
+            // when
+            ResponseEntity<String> responseEntity = restTemplate.exchange("/api/user/batch", HttpMethod.POST,
+                    new HttpEntity<>(batchRequestMap, httpHeaders), String.class);
+            // then
+            assertThat(responseEntity.getStatusCode().value()).isEqualTo(400);
+        }
+    }
+
+    @Nested
+    @Order(2)
+    class Throughput {
+        // 経過時間は環境で揺れるため、発行した INSERT 文の数で比べる
+        @Test
+        void 一件ずつの登録と比較する() {
+            // given
+            int rows = 2000;
+            long singleBefore = statements("UserMapper.insert");
+            long batchBefore = statements("UserMapper.insertAll");
+            List<Map<String, String>> creates = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                creates.add(Map.of("name", "batch", "email", "batch%d@example.com".formatted(i)));
+            }
+            // when
+            for (int i = 0; i < rows; i++) {
+                restTemplate.exchange("/api/user", HttpMethod.POST,
+                        new HttpEntity<>(Map.of("name", "single", "email", "single%d@example.com".formatted(i)),
+                                httpHeaders), Void.class);
+            }
+            ResponseEntity<UserBatchResponse> responseEntity = restTemplate.exchange("/api/user/batch",
+                    HttpMethod.POST, new HttpEntity<>(Map.of("creates", creates), httpHeaders),
+                    UserBatchResponse.class);
+            // then
+            assertThat(responseEntity.getBody().getCreated()).hasSize(rows).isSorted();
+            assertThat(statements("UserMapper.insert") - singleBefore).isEqualTo(rows);
+            assertThat(statements("UserMapper.insertAll") - batchBefore).isEqualTo(2);
+        }
+    }
+
+    private long statements(String statement) {
+        Timer timer = meterRegistry.find("mybatis.statement").tag("statement", statement).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private ResponseEntity<UserResponse> find(int id) {
+        return restTemplate.exchange("/api/user/id/%d".formatted(id), HttpMethod.GET,
+                new HttpEntity<>(httpHeaders), UserResponse.class);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestExecutionListeners.MergeMode;
+
+import com.example.springboot.Application;
+import com.example.springboot.listener.FlywayTestExecutionListener;
+import com.example.springboot.web.response.UserIndexResponse;
+import com.example.springboot.web.response.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestExecutionListeners(listeners = { FlywayTestExecutionListener.class }, mergeMode = MergeMode.MERGE_WITH_DEFAULTS)
+class UserExportTest {
+
+    private static final int SEED_ROWS = 200_000;
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper mapper;
+
+    @BeforeAll
+    void setUp() {
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email)
+                SELECT 'user' || g, 'user' || g || '@example.com' FROM generate_series(1, ?) g
+                """, SEED_ROWS);
+    }
+
+    @Test
+    void 全件をNDJSONで取得できる() throws IOException {
+        // when
+        HttpURLConnection connection = open("/api/user/export", "application/x-ndjson");
+        // then
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getContentType()).startsWith("application/x-ndjson");
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertThat(mapper.readValue(reader.readLine(), UserResponse.class))
+                    .extracting(UserResponse::getId, UserResponse::getName, UserResponse::getEmail)
+                    .containsExactly(1, "太郎", "xxx@example.com");
+            assertThat(reader.lines().count()).isEqualTo(SEED_ROWS + 2);
+        }
+    }
+
+    @Test
+    void 最初のバイトまでの時間とピークヒープをindexと比較する() throws IOException {
+        // given
+        for (int i = 0; i < 3; i++) {
+            exportAll();
+            indexAll();
+        }
+        // when
+        Measurement export = exportAll();
+        Measurement index = indexAll();
+        // then
+        System.out.printf("export: ttfb=%dms, total=%dms, peakHeap=%dMB%n",
+                export.ttfbNanos / 1_000_000, export.totalNanos / 1_000_000, export.peakHeapBytes >> 20);
+        System.out.printf("index : ttfb=%dms, total=%dms, peakHeap=%dMB%n",
+                index.ttfbNanos / 1_000_000, index.totalNanos / 1_000_000, index.peakHeapBytes >> 20);
+        assertThat(export.ttfbNanos).isLessThan(index.totalNanos);
+    }
+
+    private Measurement exportAll() throws IOException {
+        resetPeakHeap();
+        long start = System.nanoTime();
+        HttpURLConnection connection = open("/api/user/export", "application/x-ndjson");
+        try (InputStream in = connection.getInputStream()) {
+            in.read();
+            long ttfb = System.nanoTime() - start;
+            in.transferTo(OutputStream.nullOutputStream());
+            return new Measurement(ttfb, System.nanoTime() - start, peakHeap());
+        }
+    }
+
+    private Measurement indexAll() throws IOException {
+        resetPeakHeap();
+        long start = System.nanoTime();
+        long ttfb = 0;
+        Integer after = null;
+        do {
+            HttpURLConnection connection = open(after == null ? "/api/user?limit=1000"
+                    : "/api/user?limit=1000&after=%d".formatted(after), "application/json");
+            try (InputStream in = connection.getInputStream()) {
+                UserIndexResponse body = mapper.readValue(in, UserIndexResponse.class);
+                if (ttfb == 0) {
+                    ttfb = System.nanoTime() - start;
+                }
+                after = body.getNext();
+            }
+        } while (after != null);
+        return new Measurement(ttfb, System.nanoTime() - start, peakHeap());
+    }
+
+    private HttpURLConnection open(String path, String accept) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:%d%s".formatted(port, path))
+                .toURL().openConnection();
+        connection.setRequestProperty("Accept", accept);
+        return connection;
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long peakHeap() {
+        return heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    private record Measurement(long ttfbNanos, long totalNanos, long peakHeapBytes) {
+    }
+}
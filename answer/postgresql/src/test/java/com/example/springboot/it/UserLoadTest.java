@@ -0,0 +1,80 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.springboot.Application;
+
+// mvn test -Dtest=UserLoadTest -Dloadtest=true で実行する
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class UserLoadTest {
+
+    private static final int CONCURRENCY = 1000;
+    private static final int REQUESTS_PER_CLIENT = 20;
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void 同時接続数1000でのスループットとp99(boolean virtualThreads) {
+        assumeTrue(!virtualThreads || Runtime.version().feature() >= 21, "仮想スレッドには Java 21 以上が必要です。");
+        // given
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0", "virtual-threads.enabled=" + virtualThreads)
+                .run()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:%d/api/user?limit=10".formatted(port)))
+                    .header("Accept", "application/json")
+                    .build();
+            run(client, request, 10);
+            // when
+            long start = System.nanoTime();
+            long[] latencies = run(client, request, REQUESTS_PER_CLIENT);
+            long elapsed = System.nanoTime() - start;
+            // then
+            Arrays.sort(latencies);
+            long p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+            System.out.printf("%s threads: throughput=%.0f req/s, p99=%dms%n", virtualThreads ? "virtual" : "platform",
+                    latencies.length * 1e9 / elapsed, p99 / 1_000_000);
+            assertThat(latencies).doesNotContain(-1L);
+        }
+    }
+
+    // 各クライアントは応答を受け取ってから次のリクエストを送る
+    private static long[] run(HttpClient client, HttpRequest request, int requestsPerClient) {
+        long[] latencies = new long[CONCURRENCY * requestsPerClient];
+        AtomicInteger index = new AtomicInteger();
+        CompletableFuture<?>[] clients = new CompletableFuture<?>[CONCURRENCY];
+        for (int i = 0; i < CONCURRENCY; i++) {
+            clients[i] = send(client, request, requestsPerClient, latencies, index);
+        }
+        CompletableFuture.allOf(clients).join();
+        return latencies;
+    }
+
+    private static CompletableFuture<Void> send(HttpClient client, HttpRequest request, int remaining,
+            long[] latencies, AtomicInteger index) {
+        if (remaining == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenCompose(response -> {
+                    latencies[index.getAndIncrement()] = response.statusCode() == 200 ? System.nanoTime() - start : -1;
+                    return send(client, request, remaining - 1, latencies, index);
+                });
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestExecutionListeners.MergeMode;
+
+import com.example.springboot.Application;
+import com.example.springboot.listener.FlywayTestExecutionListener;
+import com.example.springboot.web.response.UserIndexResponse;
+
+// mvn test -Dtest=UserPaginationLoadTest -Dloadtest=true で実行する
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestExecutionListeners(listeners = { FlywayTestExecutionListener.class }, mergeMode = MergeMode.MERGE_WITH_DEFAULTS)
+class UserPaginationLoadTest {
+
+    private static final int SEED_ROWS = 200_000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeAll
+    void setUp() {
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email)
+                SELECT 'user' || g, 'user' || g || '@example.com' FROM generate_series(1, ?) g
+                """, SEED_ROWS);
+        jdbcTemplate.execute("ANALYZE users");
+    }
+
+    @Test
+    void ページ位置によらずレイテンシが一定() {
+        // given
+        for (int i = 0; i < 20; i++) {
+            get(null);
+            get(SEED_ROWS - 1000);
+        }
+        // when
+        long head = medianNanos(null);
+        long tail = medianNanos(SEED_ROWS - 1000);
+        // then
+        System.out.printf("GET /api/user page latency: head=%dus, tail=%dus%n", head / 1000, tail / 1000);
+        assertThat(tail).isLessThan(head * 3);
+    }
+
+    private long medianNanos(Integer after) {
+        long[] samples = new long[31];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            get(after);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private void get(Integer after) {
+        String url = after == null ? "/api/user?limit=1000" : "/api/user?after=%d&limit=1000".formatted(after);
+        restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(httpHeaders), UserIndexResponse.class);
+    }
+}
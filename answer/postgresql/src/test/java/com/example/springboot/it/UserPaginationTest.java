@@ -0,0 +1,96 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestExecutionListeners.MergeMode;
+
+import com.example.springboot.Application;
+import com.example.springboot.listener.FlywayTestExecutionListener;
+import com.example.springboot.web.response.UserIndexResponse;
+import com.example.springboot.web.response.UserResponse;
+
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestExecutionListeners(listeners = { FlywayTestExecutionListener.class }, mergeMode = MergeMode.MERGE_WITH_DEFAULTS)
+class UserPaginationTest {
+
+    private static final int SEED_ROWS = 10_000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeAll
+    void setUp() {
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email)
+                SELECT 'user' || g, 'user' || g || '@example.com' FROM generate_series(1, ?) g
+                """, SEED_ROWS);
+        jdbcTemplate.execute("ANALYZE users");
+    }
+
+    @Test
+    void カーソルで全件を重複も欠落もなく辿れる() {
+        // when
+        List<Integer> ids = new ArrayList<>();
+        Integer after = null;
+        do {
+            UserIndexResponse body = get(after, 1000).getBody();
+            body.getData().stream().map(UserResponse::getId).forEach(ids::add);
+            after = body.getNext();
+        } while (after != null);
+        // then
+        assertThat(ids).isEqualTo(jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Integer.class));
+    }
+
+    @Test
+    void 上限を超えるlimitは切り詰められる() {
+        // when
+        ResponseEntity<UserIndexResponse> responseEntity = get(null, 100_000);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        assertThat(responseEntity.getBody().getData()).hasSize(1000);
+        assertThat(responseEntity.getBody().getNext()).isEqualTo(1000);
+    }
+
+    @Test
+    void ページ位置によらず主キーのインデックスを辿る() {
+        // when
+        String head = MapperExplain.explain(sqlSessionFactory, jdbcTemplate, "findPage",
+                Map.of("after", 0, "limit", 100));
+        String tail = MapperExplain.explain(sqlSessionFactory, jdbcTemplate, "findPage",
+                Map.of("after", SEED_ROWS - 100, "limit", 100));
+        // then
+        assertThat(head).contains("Index Scan using users_pkey").doesNotContain("Seq Scan", "Sort");
+        assertThat(tail).contains("Index Scan using users_pkey").doesNotContain("Seq Scan", "Sort");
+    }
+
+    private ResponseEntity<UserIndexResponse> get(Integer after, int limit) {
+        String url = after == null ? "/api/user?limit=%d".formatted(limit)
+                : "/api/user?after=%d&limit=%d".formatted(after, limit);
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(httpHeaders), UserIndexResponse.class);
+    }
+}
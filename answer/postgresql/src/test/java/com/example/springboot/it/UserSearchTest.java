@@ -0,0 +1,120 @@
+package com.example.springboot.it;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestExecutionListeners.MergeMode;
+
+import com.example.springboot.Application;
+import com.example.springboot.listener.FlywayTestExecutionListener;
+import com.example.springboot.web.response.UserIndexResponse;
+import com.example.springboot.web.response.UserResponse;
+
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestExecutionListeners(listeners = { FlywayTestExecutionListener.class }, mergeMode = MergeMode.MERGE_WITH_DEFAULTS)
+class UserSearchTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    private final HttpHeaders httpHeaders = new HttpHeaders();
+
+    @BeforeAll
+    void setUp() {
+        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+        httpHeaders.setAccept(List.of(MediaType.APPLICATION_JSON));
+        jdbcTemplate.update("""
+                INSERT INTO users (name, email)
+                SELECT 'user' || g, 'user' || g || '@example.com' FROM generate_series(1, 100000) g
+                """);
+        jdbcTemplate.execute("ANALYZE users");
+    }
+
+    @Test
+    void メールアドレスで取得() {
+        // when
+        ResponseEntity<UserResponse> responseEntity = restTemplate.exchange("/api/user/email/yyy@example.com",
+                HttpMethod.GET, new HttpEntity<>(httpHeaders), UserResponse.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        assertThat(responseEntity.getBody())
+                .extracting(UserResponse::getId, UserResponse::getName, UserResponse::getEmail)
+                .containsExactly(2, "次郎", "yyy@example.com");
+    }
+
+    @Test
+    void 存在しないメールアドレス() {
+        // when
+        ResponseEntity<String> responseEntity = restTemplate.exchange("/api/user/email/none@example.com",
+                HttpMethod.GET, new HttpEntity<>(httpHeaders), String.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(404);
+    }
+
+    @Test
+    void メールアドレスの検索にインデックスを使う() {
+        // when
+        String plan = explain("findByEmail", "user50000@example.com");
+        // then
+        assertThat(plan).contains("Index Scan using users_email_key");
+    }
+
+    @Test
+    void 前方一致検索() {
+        // when
+        ResponseEntity<UserIndexResponse> responseEntity = restTemplate.exchange(
+                "/api/user/search?q=user1234&limit=5", HttpMethod.GET, new HttpEntity<>(httpHeaders),
+                UserIndexResponse.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(200);
+        assertThat(responseEntity.getBody().getData())
+                .extracting(UserResponse::getName)
+                .containsExactly("user1234", "user12340", "user12341", "user12342", "user12343");
+    }
+
+    @Test
+    void 前方一致検索にインデックスを使う() {
+        // when
+        String plan = explain("searchByPrefix", Map.of("prefix", "user1234%", "limit", 100));
+        // then
+        assertThat(plan).contains("users_name_pattern_idx", "users_email_key").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void メールアドレスの重複() {
+        // given
+        Map<String, String> userRequestMap = new HashMap<>();
+        userRequestMap.put("name", "太郎");
+        userRequestMap.put("email", "xxx@example.com");
+        // when
+        ResponseEntity<String> responseEntity = restTemplate.exchange("/api/user", HttpMethod.POST,
+                new HttpEntity<>(userRequestMap, httpHeaders), String.class);
+        // then
+        assertThat(responseEntity.getStatusCode().value()).isEqualTo(409);
+    }
+
+    private String explain(String statement, Object parameter) {
+        return MapperExplain.explain(sqlSessionFactory, jdbcTemplate, statement, parameter);
+    }
+}
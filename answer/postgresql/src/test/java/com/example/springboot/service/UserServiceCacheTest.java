@@ -0,0 +1,123 @@
+package com.example.springboot.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.example.springboot.config.CacheConfig;
+import com.example.springboot.exception.exceptions.NotFoundException;
+import com.example.springboot.persistence.entity.User;
+import com.example.springboot.persistence.mapper.UserMapper;
+
+@SpringBootTest(classes = { UserService.class, CacheConfig.class })
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+class UserServiceCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private UserMapper userMapper;
+
+    private final User user = User.builder().id(1).name("太郎").email("xxx@example.com").build();
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache("users").clear();
+        when(userMapper.findById(1)).thenReturn(user);
+        when(userMapper.update(any(User.class))).thenReturn(1);
+        when(userMapper.deleteById(1)).thenReturn(1);
+    }
+
+    @Nested
+    class findById {
+        @Test
+        void 二回目はキャッシュから返す() throws NotFoundException {
+            // when
+            userService.findById(1);
+            User actual = userService.findById(1);
+            // then
+            assertThat(actual).isEqualTo(user);
+            verify(userMapper, times(1)).findById(1);
+        }
+
+        @Test
+        void 存在しないユーザーはキャッシュしない() {
+            // given
+            when(userMapper.findById(99)).thenReturn(null);
+            // when
+            assertThrows(NotFoundException.class, () -> userService.findById(99));
+            assertThrows(NotFoundException.class, () -> userService.findById(99));
+            // then
+            verify(userMapper, times(2)).findById(99);
+        }
+    }
+
+    @Nested
+    class update {
+        @Test
+        void キャッシュを破棄する() throws NotFoundException {
+            // given
+            userService.findById(1);
+            // when
+            userService.update(User.builder().id(1).name("太郎太郎").email("aaa@example.com").build());
+            userService.findById(1);
+            // then
+            verify(userMapper, times(2)).findById(1);
+        }
+
+        @Test
+        void 失敗してもキャッシュを破棄する() throws NotFoundException {
+            // given
+            userService.findById(1);
+            doThrow(new DataAccessResourceFailureException("down")).when(userMapper).update(any(User.class));
+            // when
+            assertThrows(DataAccessResourceFailureException.class,
+                    () -> userService.update(User.builder().id(1).name("太郎太郎").email("aaa@example.com").build()));
+            // then
+            assertThat(cacheManager.getCache("users").get(1)).isNull();
+        }
+    }
+
+    @Test
+    void deleteById() throws NotFoundException {
+        // given
+        userService.findById(1);
+        // when
+        userService.deleteById(1);
+        // then
+        assertThat(cacheManager.getCache("users").get(1)).isNull();
+    }
+
+    @Test
+    void batch() throws Exception {
+        // given
+        userService.findById(1);
+        when(userMapper.deleteAllById(List.of(2))).thenReturn(1);
+        // when
+        userService.batch(List.of(), List.of(), List.of(2));
+        // then
+        assertThat(cacheManager.getCache("users").get(1)).isNull();
+    }
+}
@@ -1,21 +1,31 @@
 package com.example.springboot.service;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import com.example.springboot.exception.exceptions.BadRequestException;
 import com.example.springboot.exception.exceptions.NotFoundException;
 import com.example.springboot.persistence.entity.User;
 import com.example.springboot.persistence.mapper.UserMapper;
@@ -48,6 +58,53 @@ class UserServiceTest {
                 .containsExactly(2, "次郎", "yyy@example.com");
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportAll() throws IOException {
+        // given
+        List<User> users = List.of(
+                User.builder().id(1).name("太郎").email("xxx@example.com").build(),
+                User.builder().id(2).name("次郎").email("yyy@example.com").build());
+        Cursor<User> cursor = mock(Cursor.class);
+        when(cursor.iterator()).thenReturn(users.iterator());
+        doCallRealMethod().when(cursor).forEach(any());
+        when(userMapper.findAllAsCursor()).thenReturn(cursor);
+        // when
+        List<User> actual = new ArrayList<>();
+        userService.exportAll(actual::add);
+        // then
+        assertThat(actual).containsExactlyElementsOf(users);
+        verify(cursor).close();
+    }
+
+    @Nested
+    class findPage {
+        @Test
+        void 先頭ページ() {
+            // given
+            List<User> users = List.of(User.builder().id(1).name("太郎").email("xxx@example.com").build());
+            when(userMapper.findPage(0, 10)).thenReturn(users);
+            // when
+            List<User> actual = userService.findPage(null, 10);
+            // then
+            assertThat(actual).hasSize(1);
+            verify(userMapper).findPage(0, 10);
+        }
+
+        @Test
+        void カーソル指定() {
+            // given
+            List<User> users = List.of(User.builder().id(2).name("次郎").email("yyy@example.com").build());
+            when(userMapper.findPage(1, 10)).thenReturn(users);
+            // when
+            List<User> actual = userService.findPage(1, 10);
+            // then
+            assertThat(actual.get(0))
+                    .extracting(User::getId, User::getName, User::getEmail)
+                    .containsExactly(2, "次郎", "yyy@example.com");
+        }
+    }
+
     @Nested
     class findById {
         @Test
@@ -72,6 +129,49 @@ class UserServiceTest {
         }
     }
 
+    @Nested
+    class findByEmail {
+        @Test
+        void ok() throws NotFoundException {
+            // given
+            User user = User.builder().id(1).name("太郎").email("xxx@example.com").build();
+            when(userMapper.findByEmail("xxx@example.com")).thenReturn(user);
+            // when
+            User actual = userService.findByEmail("xxx@example.com");
+            // then
+            assertThat(actual)
+                    .extracting(User::getId, User::getName, User::getEmail)
+                    .containsExactly(1, "太郎", "xxx@example.com");
+        }
+
+        @Test
+        void ng() {
+            // given
+            when(userMapper.findByEmail("zzz@example.com")).thenReturn(null);
+            // when, then
+            assertThrows(NotFoundException.class, () -> userService.findByEmail("zzz@example.com"));
+        }
+    }
+
+    @Nested
+    class search {
+        @Test
+        void 前方一致() {
+            // when
+            userService.search("xxx", 10);
+            // then
+            verify(userMapper).searchByPrefix("xxx%", 10);
+        }
+
+        @Test
+        void ワイルドカードをエスケープする() {
+            // when
+            userService.search("50%_off\\", 10);
+            // then
+            verify(userMapper).searchByPrefix("50\\%\\_off\\\\%", 10);
+        }
+    }
+
     @Test
     void insert() {
         // given
@@ -82,14 +182,115 @@ class UserServiceTest {
         verify(userMapper).insert(any(User.class));
     }
 
-    @Test
-    void update() {
-        // given
-        doNothing().when(userMapper).update(any(User.class));
-        // when
-        userService.update(User.builder().id(1).name("太郎").email("xxx@example.com").build());
-        // then
-        verify(userMapper).update(any(User.class));
+    @Nested
+    class update {
+        @Test
+        void ok() throws NotFoundException {
+            // given
+            when(userMapper.update(any(User.class))).thenReturn(1);
+            // when
+            userService.update(User.builder().id(1).name("太郎").email("xxx@example.com").build());
+            // then
+            verify(userMapper).update(any(User.class));
+            verifyNoMoreInteractions(userMapper);
+        }
+
+        @Test
+        void ng() {
+            // given
+            when(userMapper.update(any(User.class))).thenReturn(0);
+            // when, then
+            assertThrows(NotFoundException.class,
+                    () -> userService.update(User.builder().id(99).name("太郎").email("xxx@example.com").build()));
+            verify(userMapper).update(any(User.class));
+            verifyNoMoreInteractions(userMapper);
+        }
+    }
+
+    @Nested
+    class batch {
+        @Test
+        void ok() throws Exception {
+            // given
+            List<User> creates = List.of(
+                    User.builder().name("四郎").email("www@example.com").build(),
+                    User.builder().name("五郎").email("vvv@example.com").build());
+            List<User> updates = List.of(User.builder().id(1).name("太郎").email("xxx@example.com").build());
+            doAnswer(invocation -> {
+                List<User> users = invocation.getArgument(0);
+                users.get(0).setId(4);
+                users.get(1).setId(5);
+                return null;
+            }).when(userMapper).insertAll(creates);
+            when(userMapper.updateAll(updates)).thenReturn(1);
+            when(userMapper.deleteAllById(List.of(2, 3))).thenReturn(2);
+            // when
+            UserService.BatchResult actual = userService.batch(creates, updates, List.of(2, 3));
+            // then
+            assertThat(actual.created()).containsExactly(4, 5);
+            assertThat(actual.updated()).isEqualTo(1);
+            assertThat(actual.deleted()).isEqualTo(2);
+        }
+
+        @Test
+        void 大量の作成は分割して実行する() throws Exception {
+            // given
+            List<User> creates = new ArrayList<>();
+            for (int i = 0; i < 2500; i++) {
+                creates.add(User.builder().name("user" + i).email("user%d@example.com".formatted(i)).build());
+            }
+            // when
+            userService.batch(creates, List.of(), List.of());
+            // then
+            verify(userMapper).insertAll(creates.subList(0, 1000));
+            verify(userMapper).insertAll(creates.subList(1000, 2000));
+            verify(userMapper).insertAll(creates.subList(2000, 2500));
+        }
+
+        @Test
+        void 存在しないユーザーの更新() {
+            // given
+            List<User> updates = List.of(User.builder().id(99).name("太郎").email("xxx@example.com").build());
+            when(userMapper.updateAll(updates)).thenReturn(0);
+            // when, then
+            assertThrows(NotFoundException.class, () -> userService.batch(List.of(), updates, List.of()));
+        }
+
+        @Test
+        void 存在しないユーザーの削除() {
+            // given
+            when(userMapper.deleteAllById(List.of(1, 99))).thenReturn(1);
+            // when, then
+            assertThrows(NotFoundException.class, () -> userService.batch(List.of(), List.of(), List.of(1, 99)));
+        }
+
+        @Test
+        void 別のチャンクに入る重複した削除はまとめる() throws Exception {
+            // given
+            List<Integer> deletes = new ArrayList<>();
+            for (int i = 1; i <= 1000; i++) {
+                deletes.add(i);
+            }
+            deletes.add(1);
+            when(userMapper.deleteAllById(deletes.subList(0, 1000))).thenReturn(1000);
+            // when
+            UserService.BatchResult actual = userService.batch(List.of(), List.of(), deletes);
+            // then
+            assertThat(actual.deleted()).isEqualTo(1000);
+            verify(userMapper).deleteAllById(deletes.subList(0, 1000));
+            verify(userMapper, never()).deleteAllById(List.of(1));
+        }
+
+        @Test
+        void 同じIDの更新が複数ある() {
+            // given
+            List<User> updates = List.of(
+                    User.builder().id(1).name("太郎").email("xxx@example.com").build(),
+                    User.builder().id(1).name("太郎太郎").email("aaa@example.com").build());
+            // when, then
+            assertThrows(BadRequestException.class, () -> userService.batch(List.of(), updates, List.of()));
+            verify(userMapper, never()).updateAll(anyList());
+        }
     }
 
     @Nested
@@ -97,21 +298,22 @@ class UserServiceTest {
         @Test
         void ok() throws NotFoundException {
             // given
-            when(userMapper.findById(1)).thenReturn(User.builder().id(1).name("太郎").email("xxx@example.com").build());
-            doNothing().when(userMapper).deleteById(1);
+            when(userMapper.deleteById(1)).thenReturn(1);
             // when
             userService.deleteById(1);
             // then
             verify(userMapper).deleteById(1);
+            verifyNoMoreInteractions(userMapper);
         }
 
         @Test
-        void ng() throws NotFoundException {
+        void ng() {
             // given
-            when(userMapper.findById(99)).thenReturn(null);
-            doNothing().when(userMapper).deleteById(99);
+            when(userMapper.deleteById(99)).thenReturn(0);
             // when, then
             assertThrows(NotFoundException.class, () -> userService.deleteById(99));
+            verify(userMapper).deleteById(99);
+            verifyNoMoreInteractions(userMapper);
         }
     }
 }
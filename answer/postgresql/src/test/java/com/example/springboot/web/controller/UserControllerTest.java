@@ -1,31 +1,41 @@
 package com.example.springboot.web.controller;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.example.springboot.exception.exceptions.NotFoundException;
 import com.example.springboot.persistence.entity.User;
 import com.example.springboot.service.UserService;
+import com.example.springboot.service.UserService.BatchResult;
 import com.example.springboot.web.response.ErrorResponse;
+import com.example.springboot.web.response.UserBatchResponse;
 import com.example.springboot.web.response.UserIndexResponse;
 import com.example.springboot.web.response.UserResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @WebMvcTest(UserController.class)
+@Import(SimpleMeterRegistry.class)
 class UserControllerTest {
 
     @Autowired
@@ -37,20 +47,71 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @Nested
+    class index {
+        @Test
+        void ok() throws Exception {
+            // given
+            List<User> users = List.of(
+                    User.builder().id(1).name("太郎").email("xxx@example.com").build(),
+                    User.builder().id(2).name("次郎").email("yyy@example.com").build());
+            UserIndexResponse expected = UserIndexResponse.builder().data(List.of(
+                    UserResponse.builder().id(1).name("太郎").email("xxx@example.com").build(),
+                    UserResponse.builder().id(2).name("次郎").email("yyy@example.com").build())).build();
+            when(userService.findPage(null, 101)).thenReturn(users);
+            // when, then
+            mockMvc.perform(get("/api/user"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(mapper.writeValueAsString(expected)))
+                    .andExpect(jsonPath("$.next").doesNotExist());
+        }
+
+        @Test
+        void 次ページあり() throws Exception {
+            // given
+            List<User> users = List.of(
+                    User.builder().id(3).name("三郎").email("zzz@example.com").build(),
+                    User.builder().id(4).name("四郎").email("www@example.com").build(),
+                    User.builder().id(5).name("五郎").email("vvv@example.com").build());
+            UserIndexResponse expected = UserIndexResponse.builder().data(List.of(
+                    UserResponse.builder().id(3).name("三郎").email("zzz@example.com").build(),
+                    UserResponse.builder().id(4).name("四郎").email("www@example.com").build()))
+                    .next(4).build();
+            when(userService.findPage(2, 3)).thenReturn(users);
+            // when, then
+            mockMvc.perform(get("/api/user").param("after", "2").param("limit", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(mapper.writeValueAsString(expected), true));
+        }
+
+        @Test
+        void 上限を超えるlimit() throws Exception {
+            // given
+            when(userService.findPage(null, 1001)).thenReturn(List.of());
+            // when, then
+            mockMvc.perform(get("/api/user").param("limit", "100000"))
+                    .andExpect(status().isOk());
+            verify(userService).findPage(null, 1001);
+        }
+    }
+
     @Test
-    void index() throws Exception {
+    void export() throws Exception {
         // given
-        List<User> users = List.of(
-                User.builder().id(1).name("太郎").email("xxx@example.com").build(),
-                User.builder().id(2).name("次郎").email("yyy@example.com").build());
-        UserIndexResponse expected = UserIndexResponse.builder().data(List.of(
-                UserResponse.builder().id(1).name("太郎").email("xxx@example.com").build(),
-                UserResponse.builder().id(2).name("次郎").email("yyy@example.com").build())).build();
-        when(userService.findAll()).thenReturn(users);
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            consumer.accept(User.builder().id(1).name("太郎").email("xxx@example.com").build());
+            consumer.accept(User.builder().id(2).name("次郎").email("yyy@example.com").build());
+            return null;
+        }).when(userService).exportAll(any());
         // when, then
-        mockMvc.perform(get("/api/user"))
+        mockMvc.perform(get("/api/user/export"))
                 .andExpect(status().isOk())
-                .andExpect(content().json(mapper.writeValueAsString(expected)));
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().bytes("""
+                        {"id":1,"name":"太郎","email":"xxx@example.com"}
+                        {"id":2,"name":"次郎","email":"yyy@example.com"}
+                        """.getBytes(StandardCharsets.UTF_8)));
     }
 
     @Nested
@@ -80,6 +141,46 @@ class UserControllerTest {
         }
     }
 
+    @Nested
+    class findByEmail {
+        @Test
+        void ok() throws Exception {
+            // given
+            User user = User.builder().id(1).name("太郎").email("xxx@example.com").build();
+            UserResponse expected = UserResponse.builder().id(1).name("太郎").email("xxx@example.com")
+                    .build();
+            when(userService.findByEmail("xxx@example.com")).thenReturn(user);
+            // when, then
+            mockMvc.perform(get("/api/user/email/xxx@example.com"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(mapper.writeValueAsString(expected)));
+        }
+
+        @Test
+        void ng() throws Exception {
+            // given
+            ErrorResponse expected = ErrorResponse.builder().message("not found").build();
+            when(userService.findByEmail("zzz@example.com")).thenThrow(new NotFoundException("not found"));
+            // when, then
+            mockMvc.perform(get("/api/user/email/zzz@example.com"))
+                    .andExpect(status().isNotFound())
+                    .andExpect(content().json(mapper.writeValueAsString(expected)));
+        }
+    }
+
+    @Test
+    void search() throws Exception {
+        // given
+        List<User> users = List.of(User.builder().id(1).name("太郎").email("xxx@example.com").build());
+        UserIndexResponse expected = UserIndexResponse.builder().data(List.of(
+                UserResponse.builder().id(1).name("太郎").email("xxx@example.com").build())).build();
+        when(userService.search("太", 10)).thenReturn(users);
+        // when, then
+        mockMvc.perform(get("/api/user/search").param("q", "太").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(mapper.writeValueAsString(expected)));
+    }
+
     @Test
     void insert() throws Exception {
         // given
@@ -94,18 +195,104 @@ class UserControllerTest {
                 .andExpect(status().isCreated());
     }
 
-    @Test
-    void update() throws Exception {
-        // given
-        Map<String, String> userRequestMap = new HashMap<>();
-        userRequestMap.put("name", "太郎");
-        userRequestMap.put("email", "xxx@example.com");
-        doNothing().when(userService).update(any(User.class));
-        // when, then
-        mockMvc.perform(put("/api/user/1")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(mapper.writeValueAsString(userRequestMap)))
-                .andExpect(status().isNoContent());
+    @Nested
+    class batch {
+        @Test
+        void ok() throws Exception {
+            // given
+            Map<String, Object> batchRequestMap = new HashMap<>();
+            batchRequestMap.put("creates", List.of(
+                    Map.of("name", "四郎", "email", "www@example.com"),
+                    Map.of("name", "五郎", "email", "vvv@example.com")));
+            batchRequestMap.put("updates", List.of(Map.of("id", 1, "name", "太郎", "email", "xxx@example.com")));
+            batchRequestMap.put("deletes", List.of(2));
+            UserBatchResponse expected = UserBatchResponse.builder()
+                    .created(List.of(4, 5)).updated(1).deleted(1).build();
+            when(userService.batch(anyList(), anyList(), eq(List.of(2))))
+                    .thenReturn(new BatchResult(List.of(4, 5), 1, 1));
+            // when, then
+            mockMvc.perform(post("/api/user/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(batchRequestMap)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().json(mapper.writeValueAsString(expected)));
+        }
+
+        @Test
+        void ng() throws Exception {
+            // given
+            ErrorResponse expected = ErrorResponse.builder().message("not found").build();
+            when(userService.batch(anyList(), anyList(), anyList())).thenThrow(new NotFoundException("not found"));
+            // when, then
+            mockMvc.perform(post("/api/user/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(Map.of("deletes", List.of(99)))))
+                    .andExpect(status().isNotFound())
+                    .andExpect(content().json(mapper.writeValueAsString(expected)));
+        }
+
+        @Test
+        void 配列にnullを指定() throws Exception {
+            // given
+            ErrorResponse expected = ErrorResponse.builder().message("creates は null にできません。").build();
+            // when, then
+            mockMvc.perform(post("/api/user/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"creates\": null, \"deletes\": [2]}"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().json(mapper.writeValueAsString(expected)));
+            verify(userService, never()).batch(anyList(), anyList(), anyList());
+        }
+
+        @Test
+        void 要素にnullを指定() throws Exception {
+            // given
+            ErrorResponse expected = ErrorResponse.builder().message("updates[1] は null にできません。").build();
+            // when, then
+            mockMvc.perform(post("/api/user/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"updates\": [{\"id\": 1, \"name\": \"太郎\", \"email\": \"xxx@example.com\"}, null]}"))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(content().json(mapper.writeValueAsString(expected)));
+            mockMvc.perform(post("/api/user/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"deletes\": [2, null]}"))
+                    .andExpect(status().isBadRequest());
+            verify(userService, never()).batch(anyList(), anyList(), anyList());
+        }
+    }
+
+    @Nested
+    class update {
+        @Test
+        void ok() throws Exception {
+            // given
+            Map<String, String> userRequestMap = new HashMap<>();
+            userRequestMap.put("name", "太郎");
+            userRequestMap.put("email", "xxx@example.com");
+            doNothing().when(userService).update(any(User.class));
+            // when, then
+            mockMvc.perform(put("/api/user/1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(userRequestMap)))
+                    .andExpect(status().isNoContent());
+        }
+
+        @Test
+        void ng() throws Exception {
+            // given
+            Map<String, String> userRequestMap = new HashMap<>();
+            userRequestMap.put("name", "太郎");
+            userRequestMap.put("email", "xxx@example.com");
+            ErrorResponse expected = ErrorResponse.builder().message("not found").build();
+            doThrow(new NotFoundException("not found")).when(userService).update(any(User.class));
+            // when, then
+            mockMvc.perform(put("/api/user/99")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(userRequestMap)))
+                    .andExpect(status().isNotFound())
+                    .andExpect(content().json(mapper.writeValueAsString(expected)));
+        }
     }
 
     @Nested